@@ -0,0 +1,189 @@
+package org.example.gradle;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.artifacts.transform.InputArtifact;
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+/**
+ * Annotates a jar of Avro-generated classes, such as one another team publishes, with {@code AvroClassProcessor} on its
+ * way to the classpath, so Kotlin sees the nullability of its records instead of platform types.
+ * <p>
+ * A jar of {@code .class} files is annotated with {@code --classes}, a sources jar as sources. Classes that were not
+ * generated by Avro are copied as they are. Gradle runs the transform once per jar content and processor, and keeps the
+ * annotated jar in its transform cache, which the build cache can share with other machines.
+ * <p>
+ * The processor runs inside the Gradle daemon, in a class loader built from the processor classpath that is kept for as
+ * long as the daemon keeps the build logic, so the transforms of later builds find it loaded and warmed up. The loader
+ * is kept for the size and modification time of every file of the classpath, not just its paths: the processor jar is
+ * rebuilt at the same path, and a loader over an earlier jar would run the earlier processor, so it is closed and
+ * replaced. Reading the files for a content hash would cost every transform several megabytes of jars.
+ * <p>
+ * The entries of a jar are annotated by {@link Parameters#getWorkers()} threads. Gradle runs the transforms of several
+ * jars at the same time, each with its own workers, so the default is a small fixed count rather than one per
+ * processor.
+ */
+@CacheableTransform
+public abstract class AnnotateAvroJarTransform implements TransformAction<AnnotateAvroJarTransform.Parameters> {
+    private static final Map<List<File>, ProcessorClassLoader> PROCESSOR_CLASS_LOADERS = new ConcurrentHashMap<>();
+    private static final int DEFAULT_WORKERS = 2;
+
+    public interface Parameters extends TransformParameters {
+        /**
+         * @return The runtime classpath of the processor.
+         */
+        @Classpath
+        ConfigurableFileCollection getProcessorClasspath();
+
+        /**
+         * @return How an annotated sources jar is written: {@code reprint} or {@code patch}, see the processor's
+         * {@code --output-mode}.
+         */
+        @Input
+        Property<String> getOutputMode();
+
+        /**
+         * @return Number of entries of a jar annotated concurrently, {@code 0} for one per available processor. Defaults
+         * to 2, as Gradle may transform several jars at once.
+         */
+        @Internal
+        Property<Integer> getWorkers();
+    }
+
+    /**
+     * @return The jar to annotate.
+     */
+    @InputArtifact
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract Provider<FileSystemLocation> getInputArtifact();
+
+    @Override
+    public void transform(TransformOutputs outputs) {
+        File jar = getInputArtifact().get().getAsFile();
+        String name = jar.getName();
+        File annotatedJar = outputs.file(name.substring(0, name.length() - ".jar".length()) + "-annotated.jar");
+
+        List<String> arguments = new ArrayList<>(List.of(
+                jar.getAbsolutePath(),
+                "--output", annotatedJar.getAbsolutePath(),
+                "--no-manifest",
+                "--workers", String.valueOf(getParameters().getWorkers().getOrElse(DEFAULT_WORKERS)),
+                "--output-mode", getParameters().getOutputMode().getOrElse("reprint"),
+                "--log-level", "warn"
+        ));
+        if (hasClassFiles(jar)) {
+            arguments.add("--classes");
+        }
+        int exitCode;
+        try {
+            Class<?> processor = Class.forName(ProcessAvroClassesWorkAction.PROCESSOR_MAIN_CLASS, true, processorClassLoader());
+            Method run = processor.getMethod("run", String[].class);
+            exitCode = (int) run.invoke(null, (Object) arguments.toArray(new String[0]));
+        } catch (InvocationTargetException e) {
+            throw new GradleException("AvroClassProcessor failed to annotate " + jar, e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new GradleException("Failed to load " + ProcessAvroClassesWorkAction.PROCESSOR_MAIN_CLASS + " from the processor classpath", e);
+        }
+        if (exitCode != 0) {
+            throw new GradleException("AvroClassProcessor failed to annotate " + jar + " with exit code " + exitCode + ", see the report above");
+        }
+    }
+
+    /**
+     * @return Whether the jar holds compiled classes rather than only sources.
+     */
+    private static boolean hasClassFiles(File jar) {
+        try (ZipFile zip = new ZipFile(jar)) {
+            return zip.stream().anyMatch(entry -> entry.getName().endsWith(".class"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + jar, e);
+        }
+    }
+
+    private ClassLoader processorClassLoader() {
+        List<File> classpath = List.copyOf(getParameters().getProcessorClasspath().getFiles());
+        List<String> fileStamps = fileStamps(classpath);
+        return PROCESSOR_CLASS_LOADERS.compute(classpath, (files, loaded) -> {
+            if (loaded != null && loaded.fileStamps().equals(fileStamps)) {
+                return loaded;
+            }
+            // The daemon runs one build at a time, and every transform of a build sees the same content
+            if (loaded != null) {
+                close(loaded.loader());
+            }
+            // Isolated from the classes of Gradle and the build logic, such as another version of Avro
+            return new ProcessorClassLoader(fileStamps, new URLClassLoader("avro-class-processor",
+                    files.stream().map(AnnotateAvroJarTransform::toUrl).toArray(URL[]::new), ClassLoader.getPlatformClassLoader()));
+        }).loader();
+    }
+
+    /**
+     * @return The path, size and modification time of every file of the classpath, the jars and the files of its
+     * directories, in order. Only the file attributes are read.
+     */
+    private static List<String> fileStamps(List<File> classpath) {
+        List<String> stamps = new ArrayList<>();
+        try {
+            for (File entry : classpath) {
+                List<Path> files;
+                try (Stream<Path> paths = Files.walk(entry.toPath())) {
+                    files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for (Path file : files) {
+                    stamps.add(file + " " + Files.size(file) + " " + Files.getLastModifiedTime(file).toMillis());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the processor classpath " + classpath, e);
+        }
+        return stamps;
+    }
+
+    private static void close(URLClassLoader loader) {
+        try {
+            loader.close();
+        } catch (IOException e) {
+            // The loader is dropped either way, only its open jars may stay behind until the daemon stops
+        }
+    }
+
+    private record ProcessorClassLoader(List<String> fileStamps, URLClassLoader loader) {
+    }
+
+    private static URL toUrl(File file) {
+        try {
+            return file.toURI().toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(file.toString(), e);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package org.example.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Console;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.ExecOperations;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkerExecutor;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs {@code AvroClassProcessor} over the classes generated by the Avro plugin, writing the annotated copies to a
+ * separate output directory.
+ * <p>
+ * The task is incremental: only the generated classes reported as added or modified by Gradle are processed again,
+ * and the outputs of removed classes are deleted. Inputs are tracked by relative path and the task only uses injected
+ * services at execution time, so it works with the configuration cache and its outputs can be loaded from the build
+ * cache of another checkout.
+ * <p>
+ * By default the processor runs inside the Gradle daemon through the Worker API, so it does not pay for starting and
+ * warming up a new JVM on every build. Set {@link #getUseWorkerApi()} to {@code false} to run it in a forked JVM.
+ * <p>
+ * Set {@link #getFlightRecording()} to profile the processor: it then runs in a forked JVM under Java Flight Recorder,
+ * which records the processor's own events next to the GC and IO events of the run.
+ */
+@CacheableTask
+public abstract class ProcessAvroClassesTask extends DefaultTask {
+    /**
+     * @return The directory the Avro plugin generated the Java classes into.
+     */
+    @Incremental
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @IgnoreEmptyDirectories
+    public abstract DirectoryProperty getGeneratedClassesDir();
+
+    /**
+     * @return The directory of the {@code .avsc} files the classes were generated from. The processor parses them once
+     * instead of parsing the schema embedded in every generated class. Optional.
+     * <p>
+     * A changed schema also changes the classes generated from it, so this directory is not used to pick the files to
+     * process, it is a plain input that keeps the outputs from being reused with other schemas. A change to it
+     * processes all the generated classes again.
+     */
+    @Optional
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @IgnoreEmptyDirectories
+    public abstract DirectoryProperty getSchemaDir();
+
+    /**
+     * @return The directory the annotated classes are written to.
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
+
+    /**
+     * @return The runtime classpath of the processor.
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getProcessorClasspath();
+
+    /**
+     * @return How the annotated classes are written: {@code reprint} prints the whole class again, {@code patch} only
+     * inserts the annotations into the generated source and keeps its formatting.
+     */
+    @Input
+    public abstract Property<String> getOutputMode();
+
+    /**
+     * @return Number of files processed concurrently, {@code 0} for one per available processor.
+     */
+    @Internal
+    public abstract Property<Integer> getWorkers();
+
+    /**
+     * @return Whether the processor runs inside the Gradle daemon through the Worker API, instead of in a forked JVM.
+     */
+    @Internal
+    public abstract Property<Boolean> getUseWorkerApi();
+
+    /**
+     * @return The most detailed level of the processor's progress messages that is printed: {@code error},
+     * {@code warn}, {@code info} or {@code debug}, which prints the phase timings of every file.
+     */
+    @Console
+    public abstract Property<String> getLogLevel();
+
+    /**
+     * @return A file the processor writes the JSON report of its phase timings to. Optional, the report describes a
+     * single run and is no output of the task.
+     */
+    @Internal
+    public abstract RegularFileProperty getReportFile();
+
+    /**
+     * @return A file the Java Flight Recorder recording of the processor is written to. Optional, when set the processor
+     * always runs in a forked JVM with a recording of the {@code profile} settings.
+     */
+    @Internal
+    public abstract RegularFileProperty getFlightRecording();
+
+    /**
+     * @return A directory of annotated sources shared by every project on the machine, such as one in the Gradle user
+     * home. Optional, a source another project already annotated is then copied from it instead of being parsed. Its
+     * entries are keyed by the generated source, so it is no input of the task.
+     */
+    @Internal
+    public abstract DirectoryProperty getSharedCacheDir();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    public ProcessAvroClassesTask() {
+        getWorkers().convention(0);
+        getUseWorkerApi().convention(true);
+        getOutputMode().convention("reprint");
+        getLogLevel().convention("info");
+    }
+
+    @TaskAction
+    public void process(InputChanges inputChanges) {
+        File outputDir = getOutputDir().get().getAsFile();
+        if (!inputChanges.isIncremental()) {
+            // Start from scratch, outputs of classes that are no longer generated must not survive
+            getFileSystemOperations().delete(spec -> spec.delete(outputDir));
+        }
+
+        List<String> changedFiles = new ArrayList<>();
+        for (FileChange change : inputChanges.getFileChanges(getGeneratedClassesDir())) {
+            if (change.getFileType() == FileType.DIRECTORY || !change.getNormalizedPath().endsWith(".java")) {
+                continue;
+            }
+            if (change.getChangeType() == ChangeType.REMOVED) {
+                getFileSystemOperations().delete(spec -> spec.delete(new File(outputDir, change.getNormalizedPath())));
+            } else {
+                changedFiles.add(change.getNormalizedPath());
+            }
+        }
+        if (changedFiles.isEmpty()) {
+            return;
+        }
+
+        List<String> arguments = processorArguments(changedFiles);
+        if (getUseWorkerApi().get() && !getFlightRecording().isPresent()) {
+            getWorkerExecutor()
+                    .classLoaderIsolation(spec -> spec.getClasspath().from(getProcessorClasspath()))
+                    .submit(ProcessAvroClassesWorkAction.class, parameters -> parameters.getArguments().set(arguments));
+        } else {
+            getExecOperations().javaexec(spec -> {
+                spec.classpath(getProcessorClasspath());
+                spec.getMainClass().set(ProcessAvroClassesWorkAction.PROCESSOR_MAIN_CLASS);
+                spec.args(arguments);
+                if (getFlightRecording().isPresent()) {
+                    File recording = getFlightRecording().get().getAsFile();
+                    recording.getParentFile().mkdirs();
+                    spec.jvmArgs("-XX:StartFlightRecording=settings=profile,dumponexit=true,filename=" + recording.getAbsolutePath());
+                }
+            });
+        }
+    }
+
+    /**
+     * Builds the processor command line. The changed files are passed in a file, since a large source set can easily
+     * exceed the command line length limit.
+     */
+    protected List<String> processorArguments(List<String> changedFiles) {
+        File filesList = new File(getTemporaryDir(), "changed-files.txt");
+        try {
+            Files.write(filesList.toPath(), changedFiles, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + filesList, e);
+        }
+
+        List<String> arguments = new ArrayList<>(List.of(
+                getGeneratedClassesDir().get().getAsFile().getAbsolutePath(),
+                "--output", getOutputDir().get().getAsFile().getAbsolutePath(),
+                "--no-manifest",
+                "--files-from", filesList.getAbsolutePath(),
+                "--workers", String.valueOf(getWorkers().get()),
+                "--output-mode", getOutputMode().get(),
+                "--log-level", getLogLevel().get(),
+                // Kept across builds, so an incremental build parses only the schemas it has not seen yet
+                "--plan-cache", new File(getTemporaryDir(), "nullability-plans.bin").getAbsolutePath()
+        ));
+        if (getSchemaDir().isPresent()) {
+            arguments.add("--schema-dir");
+            arguments.add(getSchemaDir().get().getAsFile().getAbsolutePath());
+        }
+        if (getSharedCacheDir().isPresent()) {
+            arguments.add("--shared-cache");
+            arguments.add(getSharedCacheDir().get().getAsFile().getAbsolutePath());
+        }
+        if (getReportFile().isPresent()) {
+            arguments.add("--report");
+            arguments.add(getReportFile().get().getAsFile().getAbsolutePath());
+        }
+        return arguments;
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.gradle;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Runs {@code AvroClassProcessor} inside the Gradle daemon.
+ * <p>
+ * The action is loaded in a class loader isolated from the build script classes, built from the processor classpath,
+ * and the processor is called reflectively because it is not on the classpath of {@code buildSrc}. Gradle reuses that
+ * class loader and its worker threads across builds, so the parser classes, the processor's per-thread parsers and
+ * the JIT-compiled code stay warm as long as the daemon lives.
+ */
+public abstract class ProcessAvroClassesWorkAction implements WorkAction<ProcessAvroClassesWorkAction.Parameters> {
+    static final String PROCESSOR_MAIN_CLASS = "org.example.AvroClassProcessor";
+
+    public interface Parameters extends WorkParameters {
+        /**
+         * @return The processor command line arguments.
+         */
+        ListProperty<String> getArguments();
+    }
+
+    @Override
+    public void execute() {
+        String[] arguments = getParameters().getArguments().get().toArray(new String[0]);
+        int exitCode;
+        try {
+            Class<?> processor = Class.forName(PROCESSOR_MAIN_CLASS, true, getClass().getClassLoader());
+            Method run = processor.getMethod("run", String[].class);
+            exitCode = (int) run.invoke(null, (Object) arguments);
+        } catch (InvocationTargetException e) {
+            throw new GradleException("AvroClassProcessor failed", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new GradleException("Failed to load " + PROCESSOR_MAIN_CLASS + " from the processor classpath", e);
+        }
+        if (exitCode != 0) {
+            throw new GradleException("AvroClassProcessor failed with exit code " + exitCode + ", see the report above");
+        }
+    }
+}
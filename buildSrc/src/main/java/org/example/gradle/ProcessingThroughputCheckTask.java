@@ -0,0 +1,188 @@
+package org.example.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Runs the processor over a generated schema corpus in a forked JVM and fails if it processed fewer files per second,
+ * or needed more heap, than the stored baseline allows.
+ * <p>
+ * The measurement depends on the machine, so the task never reuses an earlier result, and the baseline is kept on the
+ * machine that recorded it, outside of the repository, for the check arguments it was measured with. Set
+ * {@link #getUpdateBaseline()} to write the measured values as the new baseline instead of checking them.
+ */
+public abstract class ProcessingThroughputCheckTask extends DefaultTask {
+    static final String MAIN_CLASS = "org.example.ThroughputCheck";
+    private static final String FILES_PER_SECOND = "filesPerSecond";
+    private static final String PEAK_HEAP_MB = "peakHeapMb";
+    private static final String MEASURED_WITH = "measuredWith";
+
+    /**
+     * @return The classpath of the corpus generator and the processor.
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * @return The options of the generated corpus and of the runs, see {@code ThroughputCheck}.
+     */
+    @Input
+    public abstract ListProperty<String> getCheckArguments();
+
+    /**
+     * @return The maximum heap of the JVM that runs the processor, so that peak heap usage is comparable between runs.
+     */
+    @Input
+    public abstract Property<String> getMaxHeapSize();
+
+    /**
+     * @return The properties file holding the baseline {@code filesPerSecond} and {@code peakHeapMb} of this machine,
+     * such as one in the Gradle user home. It need not exist until a baseline is recorded.
+     */
+    @Internal
+    public abstract RegularFileProperty getBaselineFile();
+
+    /**
+     * @return How far the results may fall behind the baseline, {@code 0.2} allows 20% fewer files per second and 20%
+     * more peak heap.
+     */
+    @Input
+    public abstract Property<Double> getTolerance();
+
+    /**
+     * @return Whether the measured values replace the baseline instead of being checked against it.
+     */
+    @Input
+    public abstract Property<Boolean> getUpdateBaseline();
+
+    /**
+     * @return The directory the corpus, its generated sources and the annotated outputs are written to.
+     */
+    @Internal
+    public abstract DirectoryProperty getWorkDir();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    public ProcessingThroughputCheckTask() {
+        getMaxHeapSize().convention("1g");
+        getTolerance().convention(0.2);
+        getUpdateBaseline().convention(false);
+        // A measurement, never up to date
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @TaskAction
+    public void check() {
+        // A baseline of another corpus or heap says nothing about this one
+        String measuredWith = String.join(" ", getCheckArguments().get()) + " -Xmx" + getMaxHeapSize().get();
+        File baselineFile = getBaselineFile().get().getAsFile();
+        Properties baseline = getUpdateBaseline().get() ? null : loadBaseline(baselineFile, measuredWith);
+
+        File workDir = getWorkDir().get().getAsFile();
+        File resultsFile = new File(workDir, "results.properties");
+        List<String> arguments = new ArrayList<>(List.of(new File(workDir, "corpus").getAbsolutePath(), resultsFile.getAbsolutePath()));
+        arguments.addAll(getCheckArguments().get());
+        getExecOperations().javaexec(spec -> {
+            spec.classpath(getClasspath());
+            spec.getMainClass().set(MAIN_CLASS);
+            spec.setMaxHeapSize(getMaxHeapSize().get());
+            spec.args(arguments);
+        });
+
+        Properties results = load(resultsFile);
+        if (getUpdateBaseline().get()) {
+            results.setProperty(MEASURED_WITH, measuredWith);
+            store(results, baselineFile);
+            getLogger().lifecycle("Stored the new throughput baseline in {}: {} files/s, {} MB peak heap", baselineFile,
+                    results.getProperty(FILES_PER_SECOND), results.getProperty(PEAK_HEAP_MB));
+            return;
+        }
+
+        double tolerance = getTolerance().get();
+        double filesPerSecond = number(results, FILES_PER_SECOND, resultsFile);
+        double baselineFilesPerSecond = number(baseline, FILES_PER_SECOND, baselineFile);
+        double peakHeap = number(results, PEAK_HEAP_MB, resultsFile);
+        double baselinePeakHeap = number(baseline, PEAK_HEAP_MB, baselineFile);
+        getLogger().lifecycle("Processed {} files/s (baseline {}), peak heap {} MB (baseline {} MB)",
+                filesPerSecond, baselineFilesPerSecond, peakHeap, baselinePeakHeap);
+
+        List<String> regressions = new ArrayList<>();
+        if (filesPerSecond < baselineFilesPerSecond * (1 - tolerance)) {
+            regressions.add(String.format(Locale.ROOT, "throughput dropped to %.1f files/s, the baseline is %.1f", filesPerSecond, baselineFilesPerSecond));
+        }
+        if (peakHeap > baselinePeakHeap * (1 + tolerance)) {
+            regressions.add(String.format(Locale.ROOT, "peak heap grew to %.0f MB, the baseline is %.0f MB", peakHeap, baselinePeakHeap));
+        }
+        if (!regressions.isEmpty()) {
+            throw new GradleException("Processing regressed by more than " + Math.round(tolerance * 100) + "%: "
+                    + String.join(", ", regressions) + ". Run with -PupdateThroughputBaseline if this is expected.");
+        }
+    }
+
+    /**
+     * @return The baseline recorded on this machine with the same check arguments, checked before measuring anything.
+     */
+    private static Properties loadBaseline(File baselineFile, String measuredWith) {
+        if (!baselineFile.isFile()) {
+            throw new GradleException("No throughput baseline for this machine in " + baselineFile
+                    + ", run with -PupdateThroughputBaseline to record one.");
+        }
+        Properties baseline = load(baselineFile);
+        if (!measuredWith.equals(baseline.getProperty(MEASURED_WITH))) {
+            throw new GradleException("No throughput baseline for " + measuredWith + " in " + baselineFile + ", it was recorded for "
+                    + baseline.getProperty(MEASURED_WITH) + ". Run with -PupdateThroughputBaseline to record one.");
+        }
+        return baseline;
+    }
+
+    private static Properties load(File file) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+        return properties;
+    }
+
+    private static void store(Properties properties, File file) {
+        file.getParentFile().mkdirs();
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            properties.store(writer, "Baseline of the processingThroughputCheck task, update with -PupdateThroughputBaseline");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + file, e);
+        }
+    }
+
+    private static double number(Properties properties, String key, File file) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new GradleException("No " + key + " in " + file);
+        }
+        return Double.parseDouble(value);
+    }
+}
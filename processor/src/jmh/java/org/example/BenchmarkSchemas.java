@@ -0,0 +1,128 @@
+package org.example;
+
+import org.apache.avro.Schema;
+import org.apache.avro.compiler.specific.SpecificCompiler;
+import org.apache.avro.generic.GenericData;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The schemas the benchmarks process, in the shapes of the test schemas but of any size, and the Java sources the Avro
+ * compiler generates for them.
+ */
+final class BenchmarkSchemas {
+    private static final String NAMESPACE = "com.example.benchmark";
+
+    private BenchmarkSchemas() {
+    }
+
+    /**
+     * Creates the schema of a benchmark shape.
+     *
+     * @param shape      {@code lists:<depth>} or {@code maps:<depth>} for a record of nested lists or maps, like
+     *                   {@code ListsObject} and {@code MapsObject}, {@code wrapper} for a record of references to other
+     *                   named types, like {@code DomainClassWrapper}, or {@code enum}.
+     * @param fieldCount The number of fields of the record, or symbols of the enum.
+     */
+    static Schema create(String shape, int fieldCount) {
+        String[] parts = shape.split(":");
+        return switch (parts[0]) {
+            case "lists" -> nestedCollections("Lists", fieldCount, Integer.parseInt(parts[1]), Schema::createArray);
+            case "maps" -> nestedCollections("Maps", fieldCount, Integer.parseInt(parts[1]), Schema::createMap);
+            case "wrapper" -> wrapper(fieldCount);
+            case "enum" -> enumeration(fieldCount);
+            default -> throw new IllegalArgumentException("Unknown benchmark shape " + shape);
+        };
+    }
+
+    /**
+     * Every field nests the collection {@code depth} times. The fields alternate between nullable and plain values and
+     * collections, so both annotations show up at every level.
+     */
+    private static Schema nestedCollections(String name, int fieldCount, int depth, CollectionFactory collection) {
+        List<Schema.Field> fields = new ArrayList<>();
+        for (int i = 0; i < fieldCount; i++) {
+            Schema type = maybeNullable(Schema.create(Schema.Type.STRING), i % 2 == 1);
+            for (int level = 0; level < depth; level++) {
+                type = maybeNullable(collection.create(type), (i / 2) % 2 == 1 && level == depth - 1);
+            }
+            fields.add(new Schema.Field("field" + i, type));
+        }
+        return Schema.createRecord(name + "Depth" + depth, null, NAMESPACE, false, fields);
+    }
+
+    /**
+     * The fields cycle through a record, a nullable record, an enum and a nullable enum, the types are defined by the
+     * first fields that use them and only referenced by name afterwards.
+     */
+    private static Schema wrapper(int fieldCount) {
+        Schema domainEnum = Schema.createEnum("DomainEnum", null, NAMESPACE, List.of("FIRST", "SECOND"));
+        Schema domainClass = Schema.createRecord("DomainClass", null, NAMESPACE, false, List.of(
+                new Schema.Field("name", Schema.create(Schema.Type.STRING)),
+                new Schema.Field("nullableName", maybeNullable(Schema.create(Schema.Type.STRING), true)),
+                new Schema.Field("kind", domainEnum)));
+
+        List<Schema.Field> fields = new ArrayList<>();
+        for (int i = 0; i < fieldCount; i++) {
+            Schema type = switch (i % 4) {
+                case 0 -> domainClass;
+                case 1 -> maybeNullable(domainClass, true);
+                case 2 -> domainEnum;
+                default -> maybeNullable(domainEnum, true);
+            };
+            fields.add(new Schema.Field("field" + i, type));
+        }
+        return Schema.createRecord("DomainClassWrapper", null, NAMESPACE, false, fields);
+    }
+
+    private static Schema enumeration(int symbolCount) {
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < symbolCount; i++) {
+            symbols.add("SYMBOL_" + i);
+        }
+        return Schema.createEnum("EnumClass", null, NAMESPACE, symbols);
+    }
+
+    private static Schema maybeNullable(Schema schema, boolean isNullable) {
+        return isNullable ? Schema.createUnion(Schema.create(Schema.Type.NULL), schema) : schema;
+    }
+
+    /**
+     * Generates the Java class of the schema with the same compiler settings the build uses for the test schemas.
+     *
+     * @return The source of the class.
+     * @throws IOException If the temporary output directory cannot be written or read.
+     */
+    static String generateSource(Schema schema) throws IOException {
+        Path outputDir = Files.createTempDirectory("avro-benchmark");
+        try {
+            SpecificCompiler compiler = new SpecificCompiler(schema);
+            compiler.setCreateSetters(true);
+            compiler.setFieldVisibility(SpecificCompiler.FieldVisibility.PRIVATE);
+            compiler.setStringType(GenericData.StringType.String);
+            compiler.setEnableDecimalLogicalType(true);
+            compiler.compileToDestination(null, outputDir.toFile());
+            Path sourceFile = outputDir.resolve(schema.getFullName().replace('.', File.separatorChar) + ".java");
+            return Files.readString(sourceFile, StandardCharsets.UTF_8);
+        } finally {
+            try (Stream<Path> paths = Files.walk(outputDir)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface CollectionFactory {
+        Schema create(Schema valueType);
+    }
+}
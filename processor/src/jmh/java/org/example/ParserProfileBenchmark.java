@@ -0,0 +1,64 @@
+package org.example;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import org.example.AvroClassProcessor.OutputMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a generated class with JavaParser's default configuration against the lean profiles of
+ * {@link GeneratedSourceParser}. The time per parse is the score, the heap per parse is the {@code gc.alloc.rate.norm}
+ * the GC profiler reports next to it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserProfileBenchmark {
+    /**
+     * {@code default} for {@code new JavaParser()}, or the output mode whose profile parses the class.
+     */
+    @Param({"default", "reprint", "patch"})
+    public String profile;
+
+    /**
+     * The kind of class, see {@link BenchmarkSchemas#create(String, int)}.
+     */
+    @Param({"lists:3", "maps:2", "wrapper"})
+    public String shape;
+
+    @Param({"10", "100"})
+    public int fieldCount;
+
+    private String source;
+    private JavaParser parser;
+
+    @Setup
+    public void generate() throws IOException {
+        source = BenchmarkSchemas.generateSource(BenchmarkSchemas.create(shape, fieldCount));
+        parser = profile.equals("default")
+                ? new JavaParser(new ParserConfiguration())
+                : new JavaParser(GeneratedSourceParser.configuration(OutputMode.valueOf(profile.toUpperCase())));
+    }
+
+    @Benchmark
+    public CompilationUnit parse() {
+        return parser.parse(source).getResult().orElseThrow();
+    }
+}
@@ -0,0 +1,115 @@
+package org.example;
+
+import com.github.javaparser.ast.CompilationUnit;
+import org.apache.avro.Schema;
+import org.example.AvroClassProcessor.OutputMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the phases {@link AvroClassProcessor#annotateSource} runs for one generated class, each on its own: parsing
+ * the source, parsing the schema embedded in it, adding the annotations and printing the result. Run with
+ * {@code ./gradlew jmh}, which also reports the allocation rate of every phase through the GC profiler.
+ * <p>
+ * The classes are generated once per trial from the schemas of {@link BenchmarkSchemas}, for every combination of
+ * {@link #shape} and {@link #fieldCount}.
+ * <p>
+ * Annotating changes the compilation unit, so {@link #annotate()} annotates a fresh copy of the parsed class every
+ * time. Copying is measured on its own by {@link #copyParsed()}, the annotations alone take the difference of the two.
+ * Preparing the copy in a {@code Level.Invocation} setup instead would add JMH's per-call timestamps and
+ * synchronization to calls that take microseconds for the narrow classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessingPhasesBenchmark {
+    /**
+     * The kind of class, see {@link BenchmarkSchemas#create(String, int)}.
+     */
+    @Param({"lists:1", "lists:2", "lists:3", "lists:4", "lists:5", "maps:1", "maps:2", "maps:3", "maps:4", "maps:5", "wrapper", "enum"})
+    public String shape;
+
+    @Param({"10", "100", "1000"})
+    public int fieldCount;
+
+    private String source;
+    private Schema schema;
+    private boolean isEnum;
+    private CompilationUnit parsed;
+    private CompilationUnit annotated;
+
+    /**
+     * Generates the class, and prepares only what the benchmark of this trial starts from, since parsing and annotating
+     * the widest classes takes a while.
+     */
+    @Setup(Level.Trial)
+    public void generate(BenchmarkParams params) throws IOException {
+        schema = BenchmarkSchemas.create(shape, fieldCount);
+        isEnum = schema.getType() == Schema.Type.ENUM;
+        source = BenchmarkSchemas.generateSource(schema);
+        String benchmark = params.getBenchmark();
+        if (benchmark.endsWith(".extractSchema") || benchmark.endsWith(".annotate") || benchmark.endsWith(".copyParsed")
+                || (isEnum && benchmark.endsWith(".print"))) {
+            parsed = AvroClassProcessor.parse(source);
+        } else if (benchmark.endsWith(".print")) {
+            annotated = AvroClassProcessor.parse(source);
+            AvroClassProcessor.annotate(annotated, schema);
+        }
+    }
+
+    @Benchmark
+    public CompilationUnit parse() {
+        return AvroClassProcessor.parse(source);
+    }
+
+    @Benchmark
+    public Schema extractSchema() {
+        return AvroClassProcessor.extractSchema(parsed);
+    }
+
+    /**
+     * Annotates a copy of the parsed class, including the cost of {@link #copyParsed()}.
+     */
+    @Benchmark
+    public CompilationUnit annotate() {
+        CompilationUnit cu = parsed.clone();
+        if (!isEnum) {
+            // Enums are only checked for and left alone, like annotateSource does
+            AvroClassProcessor.annotate(cu, schema);
+        }
+        return cu;
+    }
+
+    /**
+     * The copy of the parsed class {@link #annotate()} starts from.
+     */
+    @Benchmark
+    public CompilationUnit copyParsed() {
+        return parsed.clone();
+    }
+
+    /**
+     * The processor writes enums back unchanged, for them this measures printing the class as parsed.
+     */
+    @Benchmark
+    public String print() {
+        return AvroClassProcessor.print(source, isEnum ? parsed : annotated, OutputMode.REPRINT);
+    }
+}
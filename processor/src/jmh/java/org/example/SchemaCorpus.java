@@ -0,0 +1,182 @@
+package org.example;
+
+import org.apache.avro.Protocol;
+import org.apache.avro.Schema;
+import org.apache.avro.compiler.specific.SpecificCompiler;
+import org.apache.avro.generic.GenericData;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates large corpora of record schemas, to run the processor at the scale of a real schema repository instead of
+ * the handful of test schemas. The same options always give the same corpus, byte for byte.
+ * <p>
+ * Every schema is a top-level record whose fields mix primitives, lists and maps nested up to the configured depth,
+ * inline records and enums, and references to records of earlier schemas by name. Any field type may be wrapped in one
+ * of the configured union shapes.
+ */
+final class SchemaCorpus {
+    static final String NAMESPACE = "com.example.corpus";
+    private static final String PROTOCOL_NAME = "Corpus";
+    private static final String[] PRIMITIVE_TYPES = {"string", "int", "long", "boolean", "double", "bytes"};
+
+    private final Options options;
+    private final Random random;
+    private final List<Schema> schemas = new ArrayList<>();
+    private int nestedTypeCount;
+
+    /**
+     * The union shapes a field type may be wrapped in.
+     */
+    enum UnionShape {
+        /**
+         * {@code ["null", T]}
+         */
+        OPTIONAL,
+        /**
+         * {@code [T, "null"]}
+         */
+        OPTIONAL_LAST,
+        /**
+         * {@code [T, "string"]}, a union of several non-null types
+         */
+        MULTI,
+        /**
+         * {@code ["null", T, "string"]}
+         */
+        OPTIONAL_MULTI
+    }
+
+    /**
+     * @param seed               Seed of the random choices.
+     * @param schemaCount        Number of top-level schemas.
+     * @param width              Maximum number of fields of a top-level record, nested records get a quarter of it.
+     * @param depth              Maximum nesting of lists, maps and inline records in a field.
+     * @param unionShapes        Union shapes field types may be wrapped in, none for no unions at all.
+     * @param crossReferenceRate Share of the fields that refer to the record of an earlier schema.
+     */
+    record Options(long seed, int schemaCount, int width, int depth, Set<UnionShape> unionShapes, double crossReferenceRate) {
+        static Options defaults() {
+            return new Options(1, 2000, 40, 3, EnumSet.allOf(UnionShape.class), 0.1);
+        }
+
+        Options withSeed(long seed) {
+            return new Options(seed, schemaCount, width, depth, unionShapes, crossReferenceRate);
+        }
+
+        Options withSchemaCount(int schemaCount) {
+            return new Options(seed, schemaCount, width, depth, unionShapes, crossReferenceRate);
+        }
+
+        Options withWidth(int width) {
+            return new Options(seed, schemaCount, width, depth, unionShapes, crossReferenceRate);
+        }
+
+        Options withDepth(int depth) {
+            return new Options(seed, schemaCount, width, depth, unionShapes, crossReferenceRate);
+        }
+
+        Options withUnionShapes(Set<UnionShape> unionShapes) {
+            return new Options(seed, schemaCount, width, depth, unionShapes, crossReferenceRate);
+        }
+
+        Options withCrossReferenceRate(double crossReferenceRate) {
+            return new Options(seed, schemaCount, width, depth, unionShapes, crossReferenceRate);
+        }
+    }
+
+    private SchemaCorpus(Options options) {
+        this.options = options;
+        this.random = new Random(options.seed());
+    }
+
+    /**
+     * @return The top-level schemas of the corpus, a schema only refers to the ones before it.
+     */
+    static List<Schema> generate(Options options) {
+        SchemaCorpus corpus = new SchemaCorpus(options);
+        for (int i = 0; i < options.schemaCount(); i++) {
+            corpus.nestedTypeCount = 0;
+            String name = String.format(Locale.ROOT, "Record%05d", i);
+            corpus.schemas.add(corpus.record(name, 1 + corpus.random.nextInt(Math.max(1, options.width())), options.depth()));
+        }
+        return corpus.schemas;
+    }
+
+    /**
+     * Writes every schema to its own {@code .avsc} file, named so that path order is definition order. Records of earlier
+     * schemas are only referred to by name, like in a hand-written schema directory.
+     */
+    @SuppressWarnings("deprecation") // Avro 1.11 has no other way to print known types by name
+    static void write(List<Schema> schemas, Path schemaDir) throws IOException {
+        Files.createDirectories(schemaDir);
+        for (int i = 0; i < schemas.size(); i++) {
+            String json = schemas.get(i).toString(schemas.subList(0, i), true);
+            Files.writeString(schemaDir.resolve(String.format(Locale.ROOT, "record-%05d.avsc", i)), json, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Generates the Java classes of all the schemas, each named type once, with the compiler settings the build uses for
+     * the test schemas.
+     */
+    static void generateSources(List<Schema> schemas, Path outputDir) throws IOException {
+        Protocol protocol = new Protocol(PROTOCOL_NAME, NAMESPACE);
+        protocol.setTypes(schemas);
+        SpecificCompiler compiler = new SpecificCompiler(protocol);
+        compiler.setCreateSetters(true);
+        compiler.setFieldVisibility(SpecificCompiler.FieldVisibility.PRIVATE);
+        compiler.setStringType(GenericData.StringType.String);
+        compiler.setEnableDecimalLogicalType(true);
+        compiler.compileToDestination(null, outputDir.toFile());
+        // The compiler also writes the interface of the protocol, which is no generated schema class
+        Files.deleteIfExists(outputDir.resolve(NAMESPACE.replace('.', '/')).resolve(PROTOCOL_NAME + ".java"));
+    }
+
+    private Schema record(String name, int fieldCount, int depth) {
+        List<Schema.Field> fields = new ArrayList<>();
+        for (int i = 0; i < fieldCount; i++) {
+            fields.add(new Schema.Field("field" + i, maybeUnion(fieldType(name, depth))));
+        }
+        return Schema.createRecord(name, null, NAMESPACE, false, fields);
+    }
+
+    private Schema fieldType(String recordName, int depth) {
+        if (!schemas.isEmpty() && random.nextDouble() < options.crossReferenceRate()) {
+            return schemas.get(random.nextInt(schemas.size()));
+        }
+        int kind = random.nextInt(depth > 0 ? 10 : 7);
+        return switch (kind) {
+            case 6 -> Schema.createEnum(recordName + "Enum" + nestedTypeCount++, null, NAMESPACE, List.of("FIRST", "SECOND", "THIRD"));
+            case 7 -> Schema.createArray(maybeUnion(fieldType(recordName, depth - 1)));
+            case 8 -> Schema.createMap(maybeUnion(fieldType(recordName, depth - 1)));
+            case 9 -> record(recordName + "Nested" + nestedTypeCount++, 1 + random.nextInt(Math.max(1, options.width() / 4)), depth - 1);
+            default -> Schema.create(Schema.Type.valueOf(PRIMITIVE_TYPES[kind].toUpperCase(Locale.ROOT)));
+        };
+    }
+
+    private Schema maybeUnion(Schema type) {
+        if (options.unionShapes().isEmpty() || random.nextInt(3) != 0) {
+            return type;
+        }
+        List<UnionShape> shapes = options.unionShapes().stream().sorted().toList();
+        Schema nullType = Schema.create(Schema.Type.NULL);
+        // A union may not hold two types of the same kind, the extra branch must differ from the field type
+        Schema extraType = Schema.create(type.getType() == Schema.Type.STRING ? Schema.Type.LONG : Schema.Type.STRING);
+        return switch (shapes.get(random.nextInt(shapes.size()))) {
+            case OPTIONAL -> Schema.createUnion(nullType, type);
+            case OPTIONAL_LAST -> Schema.createUnion(type, nullType);
+            case MULTI -> Schema.createUnion(type, extraType);
+            case OPTIONAL_MULTI -> Schema.createUnion(nullType, type, extraType);
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package org.example;
+
+import org.example.SchemaCorpus.UnionShape;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs the processor over a generated {@link SchemaCorpus} and records how fast it went and how much heap it needed,
+ * for the {@code processingThroughputCheck} task to compare against its baseline.
+ * <p>
+ * The corpus and its Java sources are generated first and are not part of the measurement. Every run then processes
+ * a fresh copy of the sources, with the schema directory and without a manifest, like the Gradle task does. The result
+ * is the median files per second over the runs and the highest peak heap usage of any run.
+ */
+public final class ThroughputCheck {
+    static final String USAGE = "Usage: ThroughputCheck <workDir> <resultsFile> [--seed <n>] [--schemas <count>]"
+            + " [--width <fields>] [--depth <levels>] [--union-shapes <shape,...>] [--cross-references <rate>]"
+            + " [--runs <count>] [--workers <count>]";
+    static final String FILES = "files";
+    static final String FILES_PER_SECOND = "filesPerSecond";
+    static final String PEAK_HEAP_MB = "peakHeapMb";
+
+    private ThroughputCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        Path workDir = Paths.get(args[0]);
+        Path resultsFile = Paths.get(args[1]);
+        SchemaCorpus.Options corpusOptions = SchemaCorpus.Options.defaults();
+        int runs = 3;
+        int workers = 1;
+        for (int i = 2; i < args.length; i++) {
+            String arg = args[i];
+            String value = valueOf(args, ++i, arg);
+            switch (arg) {
+                case "--seed" -> corpusOptions = corpusOptions.withSeed(Long.parseLong(value));
+                case "--schemas" -> corpusOptions = corpusOptions.withSchemaCount(Integer.parseInt(value));
+                case "--width" -> corpusOptions = corpusOptions.withWidth(Integer.parseInt(value));
+                case "--depth" -> corpusOptions = corpusOptions.withDepth(Integer.parseInt(value));
+                case "--union-shapes" -> corpusOptions = corpusOptions.withUnionShapes(parseUnionShapes(value));
+                case "--cross-references" -> corpusOptions = corpusOptions.withCrossReferenceRate(Double.parseDouble(value));
+                case "--runs" -> runs = Integer.parseInt(value);
+                case "--workers" -> workers = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option " + arg + "\n" + USAGE);
+            }
+        }
+
+        Path schemaDir = workDir.resolve("schemas");
+        Path sourcesDir = workDir.resolve("generated");
+        deleteRecursively(workDir);
+        var schemas = SchemaCorpus.generate(corpusOptions);
+        SchemaCorpus.write(schemas, schemaDir);
+        SchemaCorpus.generateSources(schemas, sourcesDir);
+        System.out.println("Generated " + schemas.size() + " schemas into " + schemaDir);
+
+        List<Double> filesPerSecond = new ArrayList<>();
+        long peakHeapBytes = 0;
+        int files = 0;
+        for (int run = 1; run <= runs; run++) {
+            Path outputDir = workDir.resolve("annotated");
+            deleteRecursively(outputDir);
+            ProcessorOptions options = ProcessorOptions.parse(new String[]{
+                    sourcesDir.toString(), "--output", outputDir.toString(), "--no-manifest",
+                    "--schema-dir", schemaDir.toString(), "--workers", String.valueOf(workers)
+            });
+
+            System.gc();
+            heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+            long start = System.nanoTime();
+            ProcessingReport report = AvroClassProcessor.process(options);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long peak = heapPools().stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+            if (report.hasFailures()) {
+                report.print(System.err);
+                throw new IllegalStateException("The processor failed on the generated corpus");
+            }
+            files = report.getProcessedFiles();
+            filesPerSecond.add(files / seconds);
+            peakHeapBytes = Math.max(peakHeapBytes, peak);
+            System.out.printf(Locale.ROOT, "Run %d: %d files in %.2f s, peak heap %d MB%n", run, files, seconds, peak >> 20);
+        }
+
+        Collections.sort(filesPerSecond);
+        Properties results = new Properties();
+        results.setProperty(FILES, String.valueOf(files));
+        results.setProperty(FILES_PER_SECOND, String.format(Locale.ROOT, "%.1f", filesPerSecond.get(filesPerSecond.size() / 2)));
+        results.setProperty(PEAK_HEAP_MB, String.valueOf(peakHeapBytes >> 20));
+        Files.createDirectories(resultsFile.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8)) {
+            results.store(writer, "Processor throughput on the generated corpus");
+        }
+    }
+
+    private static String valueOf(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option + "\n" + USAGE);
+        }
+        return args[index];
+    }
+
+    private static Set<UnionShape> parseUnionShapes(String value) {
+        if (value.isBlank() || value.equals("none")) {
+            return EnumSet.noneOf(UnionShape.class);
+        }
+        return Arrays.stream(value.split(","))
+                .map(shape -> UnionShape.valueOf(shape.strip().toUpperCase(Locale.ROOT).replace('-', '_')))
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(UnionShape.class)));
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .collect(Collectors.toList());
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
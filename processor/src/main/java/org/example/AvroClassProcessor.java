@@ -0,0 +1,1061 @@
+package org.example;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.ast.nodeTypes.modifiers.NodeWithPublicModifier;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.javadoc.Javadoc;
+import com.github.javaparser.javadoc.JavadocBlockTag;
+import com.github.javaparser.javadoc.description.JavadocDescription;
+import org.apache.avro.Schema;
+import org.example.NullabilityPlan.FieldPlan;
+import org.example.NullabilityPlan.TypeArgumentLevel;
+import org.example.ProcessingReport.FileFailure;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+public class AvroClassProcessor {
+    private static final String NOT_NULL_ANNOTATION = "org.jetbrains.annotations.NotNull";
+    private static final String NULLABLE_ANNOTATION = "org.jetbrains.annotations.Nullable";
+    private static final String DEPRECATED_ANNOTATION = "java.lang.Deprecated";
+    private static final String BUILD_METHOD_NAME = "build";
+    private static final String NEW_BUILD_METHOD_NAME = "newBuilder";
+    /**
+     * Version of the annotations the processor writes, bump it whenever the output for the same input changes.
+     */
+    public static final String PROCESSOR_VERSION = "2";
+
+
+    /**
+     * Processes a generated Java class file to add nullability annotations to fields, getter methods, and setter methods.
+     * This method reads the Java file, parses it using JavaParser, and then adds appropriate annotations based on the Avro schema.
+     * It annotates fields and their corresponding getter and setter methods with @NotNull or @Nullable based on the field's nullability in the Avro schema.
+     * Additionally, it marks public constructors as deprecated and updates their Javadoc.
+     *
+     * @param javaFile The Java file to process.
+     * @throws IOException If an I/O error occurs while reading or writing the file.
+     */
+    public static void processGeneratedClass(File javaFile) throws IOException {
+        String source = Files.readString(javaFile.toPath(), StandardCharsets.UTF_8);
+        Optional<String> annotatedSource = annotateSource(source);
+        if (annotatedSource.isPresent()) {
+            OutputFiles.writeIfChanged(javaFile.toPath(), annotatedSource.get().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Adds the nullability annotations to the source of a generated Java class, see {@link #processGeneratedClass(File)}.
+     * The schema of the class is taken from its {@code SCHEMA$} literal.
+     *
+     * @param source The source of the generated class.
+     * @return The annotated source, or empty if there is nothing to annotate in this class (enums).
+     */
+    public static Optional<String> annotateSource(String source) {
+        return annotateSource(source, SchemaRegistry.empty());
+    }
+
+    /**
+     * Adds the nullability annotations to the source of a generated Java class, see {@link #processGeneratedClass(File)}.
+     *
+     * @param source  The source of the generated class.
+     * @param schemas The schemas to look the class up in, classes missing from it fall back to their {@code SCHEMA$} literal.
+     * @return The annotated source, or empty if there is nothing to annotate in this class (enums).
+     */
+    public static Optional<String> annotateSource(String source, SchemaRegistry schemas) {
+        return annotateSource(source, schemas, OutputMode.REPRINT);
+    }
+
+    /**
+     * Adds the nullability annotations to the source of a generated Java class, see {@link #processGeneratedClass(File)}.
+     *
+     * @param source     The source of the generated class.
+     * @param schemas    The schemas to look the class up in, classes missing from it fall back to their {@code SCHEMA$} literal.
+     * @param outputMode How the annotated class is written.
+     * @return The annotated source, or empty if there is nothing to annotate in this class (enums).
+     */
+    public static Optional<String> annotateSource(String source, SchemaRegistry schemas, OutputMode outputMode) {
+        return annotateSource(source, schemas, NullabilityPlanCache.empty(), outputMode, new FileTimings.Recorder(""));
+    }
+
+    /**
+     * Adds the nullability annotations to the source of a generated Java class, charging the time of every phase and
+     * the size of the syntax tree to the recorder, and recording the phases as {@link ProcessorEvents}.
+     * <p>
+     * The plan of the class is taken from the cache when it holds the schema of the {@code SCHEMA$} literal, the schema
+     * is then neither looked up nor parsed.
+     */
+    static Optional<String> annotateSource(String source, SchemaRegistry schemas, NullabilityPlanCache plans,
+                                           OutputMode outputMode, FileTimings.Recorder timings) {
+        ProcessorEvents.ParseSource parseEvent = new ProcessorEvents.ParseSource();
+        parseEvent.begin();
+        CompilationUnit cu = parse(source, outputMode);
+        timings.lap(FileTimings.Phase.PARSE);
+        parseEvent.file = timings.getPath();
+        parseEvent.chars = source.length();
+        parseEvent.commit();
+        if (cu.getTypes().get(0).isEnumDeclaration()) {
+            // Ignore enums, nothing to annotate there.
+            return Optional.empty();
+        }
+
+        Optional<String> schemaJson = extractSchemaJson(cu);
+        Supplier<Schema> avroSchema = () -> cu.getTypes().get(0).getFullyQualifiedName()
+                .flatMap(schemas::get)
+                .orElseGet(() -> parseSchema(cu, schemaJson.orElseThrow(() -> noSchema(cu))));
+        // A class without a literal has nothing to key the cache by, it can still be found in the schema directory
+        NullabilityPlan plan = schemaJson
+                .map(json -> plans.get(json, avroSchema))
+                .orElseGet(() -> NullabilityPlan.of(avroSchema.get()));
+        timings.lap(FileTimings.Phase.EXTRACT_SCHEMA);
+        timings.countFields(plan.fieldCount());
+        ProcessorEvents.Annotate annotateEvent = new ProcessorEvents.Annotate();
+        annotateEvent.begin();
+        AnnotationCounts counts = annotate(cu, plan);
+        timings.lap(FileTimings.Phase.ANNOTATE);
+        annotateEvent.end();
+        timings.countAnnotations(counts.nodesTouched(), counts.annotationsAdded());
+        annotateEvent.file = timings.getPath();
+        annotateEvent.fieldCount = plan.fieldCount();
+        annotateEvent.annotationsAdded = counts.annotationsAdded();
+        annotateEvent.commit();
+        timings.skip();
+        ProcessorEvents.PrintSource printEvent = new ProcessorEvents.PrintSource();
+        printEvent.begin();
+        String annotatedSource = print(source, cu, outputMode);
+        timings.lap(FileTimings.Phase.PRINT);
+        printEvent.file = timings.getPath();
+        printEvent.chars = annotatedSource.length();
+        printEvent.commit();
+        return Optional.of(annotatedSource);
+    }
+
+    /**
+     * Parses the source of a generated class, the first of the phases {@link #annotateSource} runs, for
+     * {@link OutputMode#REPRINT}.
+     *
+     * @throws RuntimeException If the source does not parse.
+     */
+    static CompilationUnit parse(String source) {
+        return parse(source, OutputMode.REPRINT);
+    }
+
+    /**
+     * Parses the source of a generated class with the {@link GeneratedSourceParser} profile of the output mode.
+     *
+     * @throws RuntimeException If the source does not parse.
+     */
+    static CompilationUnit parse(String source, OutputMode outputMode) {
+        return GeneratedSourceParser.parse(source, outputMode);
+    }
+
+    /**
+     * Prints an annotated compilation unit, the last of the phases {@link #annotateSource} runs.
+     *
+     * @param source The source the compilation unit was parsed from.
+     */
+    static String print(String source, CompilationUnit cu, OutputMode outputMode) {
+        return outputMode == OutputMode.PATCH ? SourcePatcher.patch(source, cu) : cu.toString();
+    }
+
+    /**
+     * Adds the nullability annotations to a parsed generated record class.
+     *
+     * @param cu         The parsed class, it must not be an enum.
+     * @param avroSchema The schema the class was generated from.
+     * @return How many nodes were annotated and how many annotations that added.
+     */
+    static AnnotationCounts annotate(CompilationUnit cu, Schema avroSchema) {
+        return annotate(cu, NullabilityPlan.of(avroSchema));
+    }
+
+    /**
+     * Adds the nullability annotations to a parsed generated record class.
+     *
+     * @param cu   The parsed class, it must not be an enum.
+     * @param plan The plan of the schema the class was generated from.
+     * @return How many nodes were annotated and how many annotations that added.
+     */
+    static AnnotationCounts annotate(CompilationUnit cu, NullabilityPlan plan) {
+        AnnotationCounts counts = new AnnotationCounts();
+        cu.addImport(NOT_NULL_ANNOTATION);
+        cu.addImport(NULLABLE_ANNOTATION);
+        cu.addImport(DEPRECATED_ANNOTATION);
+        MethodIndex index = MethodIndex.of(cu);
+        index.constructors().stream()
+                .filter(NodeWithPublicModifier::isPublic)
+                .filter(constructor -> !hasAnnotation(constructor.getAnnotations(), DEPRECATED_ANNOTATION))
+                .forEach(constructor -> {
+                    constructor.addAnnotation(new MarkerAnnotationExpr(DEPRECATED_ANNOTATION));
+                    counts.touched(true);
+                    Javadoc newJavadoc = constructor.getJavadoc().orElseGet(() -> new Javadoc(JavadocDescription.parseText("")));
+                    newJavadoc.addBlockTag(new JavadocBlockTag("deprecated", "Do not use this constructor, use .newBuilder() instead"));
+                    constructor.setJavadocComment(newJavadoc);
+                });
+
+        for (FieldDeclaration field : index.topLevelFields()) {
+            String fieldName = field.getVariable(0).getNameAsString();
+            FieldPlan avroField = plan.field(fieldName).orElse(null);
+
+            if (avroField != null) {
+                // Working on the actual schema class fields
+                boolean isNullable = avroField.nullable();
+
+                String getterName = "get" + capitalize(fieldName);
+                index.topLevelMethods(getterName, 0)
+                        .forEach(getter -> counts.touched(addNullabilityAnnotationToMethod(getter, isNullable)));
+
+                // Annotate Builder setter method parameter
+                String setterName = "set" + capitalize(fieldName);
+                index.topLevelMethods(setterName, 1)
+                        .forEach(setter -> {
+                            Parameter param = setter.getParameter(0);
+                            counts.touched(addNullabilityAnnotationToParameter(param, isNullable));
+                        });
+
+                if (avroField.isTemplated()) {
+                    // Templates
+                    NodeList<Type> getterReturnTypeTemplates = index.topLevelMethods(getterName, 0).get(0)
+                            .getType().asClassOrInterfaceType().getTypeArguments().get();
+                    NodeList<Type> setterParameterTypeTemplates = index.topLevelMethods(setterName, 1).get(0)
+                            .getParameter(0).getType().asClassOrInterfaceType().getTypeArguments().get();
+
+                    addAnnotationsToTemplates(avroField.typeArguments(), getterReturnTypeTemplates, counts);
+                    addAnnotationsToTemplates(avroField.typeArguments(), setterParameterTypeTemplates, counts);
+                }
+            }
+        }
+
+        for (FieldDeclaration field : index.builderFields()) {
+            String fieldName = field.getVariable(0).getNameAsString();
+            FieldPlan avroField = plan.field(fieldName).orElse(null);
+            String getterName = "get" + capitalize(fieldName);
+            String clearerName = "clear" + capitalize(fieldName);
+            String setterName = "set" + capitalize(fieldName);
+
+            // Working on the builder fields
+            if (avroField != null) {
+                // Fields in the builder from the schema
+                boolean isNullable = !field.getCommonType().isPrimitiveType();
+
+                index.builderMethods(getterName, 0)
+                        .forEach(builderGetter -> counts.touched(addNullabilityAnnotationToMethod(builderGetter, isNullable)));
+
+                index.builderMethods(clearerName, 0)
+                        .forEach(builderClearer -> counts.touched(addNullabilityAnnotationToMethod(builderClearer, false)));
+
+                // Annotate Builder setter method parameter
+                index.builderMethods(setterName, 1)
+                        .forEach(builderSetter -> {
+                            Parameter param = builderSetter.getParameter(0);
+                            counts.touched(addNullabilityAnnotationToParameter(param, avroField.nullable()));
+                            // Annotate the builders setter method itself with @NotNull
+                            counts.touched(addNullabilityAnnotationToMethod(builderSetter, false));
+                        });
+
+                if (avroField.isTemplated()) {
+                    // Templates
+                    NodeList<Type> getterReturnTypeTemplates = index.builderMethods(getterName, 0).get(0)
+                            .getType().asClassOrInterfaceType().getTypeArguments().get();
+                    NodeList<Type> setterParameterTypeTemplates = index.builderMethods(setterName, 1).get(0)
+                            .getParameter(0).getType().asClassOrInterfaceType().getTypeArguments().get();
+
+                    addAnnotationsToTemplates(avroField.typeArguments(), getterReturnTypeTemplates, counts);
+                    addAnnotationsToTemplates(avroField.typeArguments(), setterParameterTypeTemplates, counts);
+                }
+            } else {
+                // The additional builder fields. Meaning, those who end with the word "builder"
+                boolean isNullable = true;
+
+                index.builderMethods(getterName, 0)
+                        .forEach(builderGetter -> counts.touched(addNullabilityAnnotationToMethod(builderGetter, isNullable)));
+
+                index.builderMethods(clearerName, 0)
+                        .forEach(builderClearer -> counts.touched(addNullabilityAnnotationToMethod(builderClearer, false)));
+
+                // Annotate Builder setter method parameter
+                index.builderMethods(setterName, 1)
+                        .forEach(builderSetter -> {
+                            Parameter param = builderSetter.getParameter(0);
+                            counts.touched(addNullabilityAnnotationToParameter(param, isNullable));
+                            // Annotate the builders setter method itself with @NotNull
+                            counts.touched(addNullabilityAnnotationToMethod(builderSetter, false));
+                        });
+            }
+        }
+
+        index.methods(BUILD_METHOD_NAME).stream()
+                .filter(method -> method.getParameters().isEmpty())
+                .forEach(buildMethod -> counts.touched(addNullabilityAnnotationToMethod(buildMethod, false)));
+        index.methods(NEW_BUILD_METHOD_NAME)
+                .forEach(newBuilderMethod -> counts.touched(addNullabilityAnnotationToMethod(newBuilderMethod, false)));
+        index.methods(NEW_BUILD_METHOD_NAME).stream()
+                .filter(method -> !method.getParameters().isEmpty())
+                .forEach(newBuilderCopyMethod -> {
+                    Parameter param = newBuilderCopyMethod.getParameter(0);
+                    counts.touched(addNullabilityAnnotationToParameter(param, true));
+                });
+        return counts;
+    }
+
+    /**
+     * Annotates the type arguments of a list or map type level by level, following the element of a list or the value
+     * of a map into the next level for as long as both the plan and the Java type go deeper.
+     */
+    private static void addAnnotationsToTemplates(List<TypeArgumentLevel> levels, NodeList<Type> typesOfTemplates,
+                                                  AnnotationCounts counts) {
+        NodeList<Type> types = typesOfTemplates;
+        for (TypeArgumentLevel level : levels) {
+            Type nestedType;
+            if (level.map()) {
+                counts.touched(addNullabilityToTemplateType(types.get(0), false));
+                counts.touched(addNullabilityToTemplateType(types.get(1), level.nullable()));
+                nestedType = types.get(1);
+            } else {
+                counts.touched(addNullabilityToTemplateType(types.get(0), level.nullable()));
+                nestedType = types.get(0);
+            }
+            Optional<NodeList<Type>> nestedTypes = nestedType.asClassOrInterfaceType().getTypeArguments();
+            if (nestedTypes.isEmpty()) {
+                return;
+            }
+            types = nestedTypes.get();
+        }
+    }
+
+    private static String capitalize(String fieldName) {
+        return fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
+    }
+
+    /**
+     * Parses the schema a generated class embeds in its {@code SCHEMA$} literal.
+     */
+    static Schema extractSchema(CompilationUnit cu) {
+        return parseSchema(cu, extractSchemaJson(cu).orElseThrow(() -> noSchema(cu)));
+    }
+
+    /**
+     * @return The schema JSON a generated class embeds in its {@code SCHEMA$} literal, or empty if it has none.
+     */
+    static Optional<String> extractSchemaJson(CompilationUnit cu) {
+        // The Avro compiler splits long schemas into several literals, which Schema.Parser.parse(String, String...) joins
+        return extractStaticFieldInitializer(cu, "SCHEMA$")
+                .map(initializer -> initializer.findAll(StringLiteralExpr.class).stream()
+                        .map(StringLiteralExpr::asString)
+                        .collect(Collectors.joining()));
+    }
+
+    private static IllegalStateException noSchema(CompilationUnit cu) {
+        return new IllegalStateException("No SCHEMA$ field in " + cu.getTypes().get(0).getNameAsString());
+    }
+
+    private static Schema parseSchema(CompilationUnit cu, String schemaJson) {
+        ProcessorEvents.ParseSchema event = new ProcessorEvents.ParseSchema();
+        event.begin();
+        Schema schema = new Schema.Parser().parse(schemaJson);
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = cu.getTypes().get(0).getFullyQualifiedName().orElse("") + ".SCHEMA$";
+            event.fieldCount = schema.getType() == Schema.Type.RECORD ? schema.getFields().size() : 0;
+            event.bytes = schemaJson.length();
+            event.commit();
+        }
+        return schema;
+    }
+
+    public static Optional<String> extractStaticFieldValue(CompilationUnit cu, String fieldName) {
+        return extractStaticFieldInitializer(cu, fieldName).map(Node::toString);
+    }
+
+    private static Optional<Expression> extractStaticFieldInitializer(CompilationUnit cu, String fieldName) {
+        // Generated classes declare their constants in the top-level class, which saves walking the whole tree
+        Optional<Expression> topLevelInitializer = staticFieldInitializer(cu.getTypes().stream()
+                .flatMap(type -> type.getFields().stream()), fieldName);
+        return topLevelInitializer.isPresent()
+                ? topLevelInitializer
+                : staticFieldInitializer(cu.findAll(FieldDeclaration.class).stream(), fieldName);
+    }
+
+    private static Optional<Expression> staticFieldInitializer(Stream<FieldDeclaration> fields, String fieldName) {
+        return fields
+                .filter(field -> field.isStatic()) // Only static fields
+                .flatMap(field -> field.getVariables().stream())
+                .filter(var -> var.getNameAsString().equals(fieldName))
+                .map(VariableDeclarator::getInitializer)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .findFirst();
+    }
+
+    private static void addNullabilityAnnotation(FieldDeclaration field, boolean isNullable) {
+        String annotationName = isNullable ? NULLABLE_ANNOTATION : NOT_NULL_ANNOTATION;
+        if (!hasAnnotation(field.getAnnotations(), annotationName)) {
+            field.addAnnotation(new MarkerAnnotationExpr(annotationName));
+        }
+    }
+
+    private static boolean addNullabilityAnnotationToMethod(MethodDeclaration method, boolean isNullable) {
+        String annotationName = isNullable ? NULLABLE_ANNOTATION : NOT_NULL_ANNOTATION;
+        if (!hasAnnotation(method.getAnnotations(), annotationName)) {
+            method.addAnnotation(new MarkerAnnotationExpr(annotationName));
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean addNullabilityAnnotationToParameter(Parameter parameter, boolean isNullable) {
+        String annotationName = isNullable ? NULLABLE_ANNOTATION : NOT_NULL_ANNOTATION;
+        if (!hasAnnotation(parameter.getAnnotations(), annotationName)) {
+            parameter.addAnnotation(new MarkerAnnotationExpr(annotationName));
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean addNullabilityToTemplateType(Type type, boolean isNullable) {
+        String annotationName = isNullable ? NULLABLE_ANNOTATION : NOT_NULL_ANNOTATION;
+        if (!hasAnnotation(type.getAnnotations(), annotationName)) {
+            type.setAnnotations(NodeList.nodeList(new MarkerAnnotationExpr(annotationName)));
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean hasAnnotation(NodeList<AnnotationExpr> annotations, String annotationName) {
+        return annotations.stream().anyMatch(annotation -> annotation.getNameAsString().equals(annotationName));
+    }
+
+    /**
+     * Processes all the generated Java files under the configured directory.
+     * With more than one worker the files are processed concurrently on a dedicated fork-join pool. Each file is
+     * processed independently, so the output is the same regardless of the number of workers.
+     * <p>
+     * Files whose source and output still match the hashes in the manifest of the previous run are skipped without
+     * parsing them, and outputs whose generated source disappeared are removed. With
+     * {@link ProcessorOptions#getSharedCacheDir()} a source another project on the machine already annotated is copied
+     * from the {@link SharedOutputCache} instead of being parsed.
+     * <p>
+     * When a schema directory is given, its {@code .avsc} files are parsed once up front and the classes are looked up
+     * in the resulting {@link SchemaRegistry} instead of parsing the schema embedded in every class. The nullability of
+     * every schema is compiled once into a {@link NullabilityPlan}, which the plan cache file keeps for later runs.
+     * <p>
+     * With {@link ProcessorOptions#isClassFiles()} the compiled {@code .class} files are annotated by the
+     * {@link ClassFileAnnotator} instead. A jar, of classes or of sources, is annotated as a whole into the output jar.
+     * <p>
+     * Every phase of every processed file is timed, the report carries the timings and, with
+     * {@link ProcessorOptions#getReportFile()}, they are also written to a JSON report.
+     *
+     * @param options The processor options.
+     * @return A report of the processed files and the ones that failed.
+     * @throws IOException If the generated classes directory cannot be listed or the manifest cannot be read or written.
+     */
+    public static ProcessingReport process(ProcessorOptions options) throws IOException {
+        SchemaRegistry schemas = options.getSchemaDir().isPresent()
+                ? SchemaRegistry.load(options.getSchemaDir().get())
+                : SchemaRegistry.empty();
+        return process(options, schemas);
+    }
+
+    /**
+     * Processes all the generated Java files under the configured directory, see {@link #process(ProcessorOptions)},
+     * with schemas the caller already loaded, such as the {@link ProcessorDaemon} that keeps them between runs.
+     *
+     * @param options The processor options, its schema directory is not read.
+     * @param schemas The schemas to look the classes up in.
+     * @return A report of the processed files and the ones that failed.
+     * @throws IOException If the generated classes directory cannot be listed or the manifest cannot be read or written.
+     */
+    public static ProcessingReport process(ProcessorOptions options, SchemaRegistry schemas) throws IOException {
+        long start = System.nanoTime();
+        ProcessorLog log = new ProcessorLog(options.getLogLevel());
+        ProcessingReport report = options.isJar()
+                ? processJar(options, schemas, log, start)
+                : processFiles(options, schemas, log, start);
+        if (options.getReportFile().isPresent()) {
+            report.getTimings().writeJson(options.getReportFile().get(), options.getSlowestCount());
+            log.debug(() -> "Wrote the timings report to " + options.getReportFile().get());
+        }
+        return report;
+    }
+
+    private static ProcessingReport processFiles(ProcessorOptions options, SchemaRegistry schemas, ProcessorLog log, long start) throws IOException {
+        List<Path> javaFiles = listJavaFiles(options, schemas, log);
+        ProcessingManifest manifest = loadManifest(options);
+        NullabilityPlanCache plans = loadPlanCache(options);
+
+        // Only a run over the whole directory knows which sources disappeared
+        List<String> removedPaths = options.isWholeDirectory() ? removedPaths(options, manifest, javaFiles) : List.of();
+        if (options.getWorkers() <= 1) {
+            return processFiles(options, schemas, plans, manifest, log, Optional.empty(), javaFiles, removedPaths, start);
+        }
+        ForkJoinPool pool = new ForkJoinPool(options.getWorkers());
+        try {
+            return processFiles(options, schemas, plans, manifest, log, Optional.of(pool), javaFiles, removedPaths, start);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param javaFiles All the generated files of the directory.
+     * @return The paths in the manifest whose generated source is not among the files.
+     */
+    static List<String> removedPaths(ProcessorOptions options, ProcessingManifest manifest, List<Path> javaFiles) {
+        Set<String> currentPaths = javaFiles.stream()
+                .map(javaFile -> relativePath(options, javaFile))
+                .collect(Collectors.toSet());
+        return manifest.paths().stream()
+                .filter(relativePath -> !currentPaths.contains(relativePath))
+                .collect(Collectors.toList());
+    }
+
+    static ProcessingManifest loadManifest(ProcessorOptions options) throws IOException {
+        return options.isManifestEnabled()
+                ? ProcessingManifest.load(options.getManifestFile(), options.getOutputFingerprint())
+                : ProcessingManifest.empty(options.getOutputFingerprint());
+    }
+
+    static NullabilityPlanCache loadPlanCache(ProcessorOptions options) {
+        return options.getPlanCacheFile()
+                .map(NullabilityPlanCache::load)
+                .orElseGet(NullabilityPlanCache::empty);
+    }
+
+    /**
+     * Processes the given files against a manifest and plan cache the caller loaded, such as the
+     * {@link ProcessorWatcher} that keeps them between its runs, and saves both afterwards.
+     *
+     * @param pool         The pool the files are processed on concurrently, or empty to process them one after the other
+     *                     on the calling thread.
+     * @param javaFiles    The generated files to process.
+     * @param removedPaths The paths, relative to the generated classes directory, of sources that are gone. Their
+     *                     outputs are removed if the manifest has them.
+     * @param start        When the run started, in {@link System#nanoTime()}.
+     * @return A report of the processed files and the ones that failed.
+     * @throws IOException If an output of a removed source, the manifest or the plan cache cannot be written.
+     */
+    static ProcessingReport processFiles(ProcessorOptions options, SchemaRegistry schemas, NullabilityPlanCache plans,
+                                         ProcessingManifest manifest, ProcessorLog log, Optional<ForkJoinPool> pool,
+                                         List<Path> javaFiles, Collection<String> removedPaths, long start) throws IOException {
+        MemoryBudget budget = new MemoryBudget(options.getMemoryBudgetBytes());
+        Optional<SharedOutputCache> sharedCache = options.getSharedCacheDir()
+                .map(dir -> new SharedOutputCache(dir, options.getSharedCacheBytes(), options.getOutputFingerprint(), log));
+        List<FileOutcome> outcomes;
+        if (pool.isEmpty()) {
+            outcomes = javaFiles.stream()
+                    .map(javaFile -> processFile(options, schemas, plans, manifest, budget, sharedCache, log, javaFile))
+                    .collect(Collectors.toList());
+        } else {
+            try {
+                outcomes = pool.get().submit(() -> javaFiles.parallelStream()
+                        .map(javaFile -> processFile(options, schemas, plans, manifest, budget, sharedCache, log, javaFile))
+                        .collect(Collectors.toList())).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while processing " + options.getGeneratedClassesDir(), e);
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to process " + options.getGeneratedClassesDir(), e.getCause());
+            }
+        }
+
+        int processedFiles = 0;
+        int upToDateFiles = 0;
+        List<FileFailure> failures = new ArrayList<>();
+        List<FileTimings> timings = new ArrayList<>();
+        for (FileOutcome outcome : outcomes) {
+            if (outcome.failure() != null) {
+                failures.add(outcome.failure());
+                // Forget the file, so it is retried on the next run
+                manifest.remove(outcome.relativePath());
+            } else {
+                // A file found up to date by its stamp alone was not hashed, the manifest keeps what it had for it
+                if (outcome.entry() != null) {
+                    manifest.put(outcome.relativePath(), outcome.entry());
+                }
+                if (outcome.upToDate()) {
+                    upToDateFiles++;
+                } else {
+                    processedFiles++;
+                    timings.add(outcome.timings());
+                }
+            }
+        }
+
+        int removedFiles = 0;
+        for (String relativePath : removedPaths) {
+            if (manifest.get(relativePath).isPresent()) {
+                // The generated source is gone, so is its output
+                if (Files.deleteIfExists(options.getOutputDir().resolve(relativePath))) {
+                    removedFiles++;
+                    log.debug(() -> "Removed " + relativePath + ", its generated source is gone");
+                }
+                manifest.remove(relativePath);
+            }
+        }
+        if (options.isManifestEnabled()) {
+            manifest.save(options.getManifestFile());
+        }
+        if (options.getPlanCacheFile().isPresent()) {
+            plans.save(options.getPlanCacheFile().get());
+        }
+        if (sharedCache.isPresent()) {
+            if (sharedCache.get().hits() > 0) {
+                log.info("Reused " + sharedCache.get().hits() + " annotated sources from the shared cache " + options.getSharedCacheDir().get());
+            }
+            sharedCache.get().evict();
+        }
+
+        return new ProcessingReport(processedFiles, upToDateFiles, removedFiles, failures,
+                new ProcessingTimings(timings, System.nanoTime() - start));
+    }
+
+    /**
+     * @param schemas The schemas of the schema directory, to find the sources affected by
+     *                {@link ProcessorOptions#getChangedSchemas()}.
+     * @return The generated files to process, sorted.
+     */
+    static List<Path> listJavaFiles(ProcessorOptions options, SchemaRegistry schemas, ProcessorLog log) throws IOException {
+        Path generatedClassesDir = options.getGeneratedClassesDir();
+        if (!options.isWholeDirectory()) {
+            Set<Path> javaFiles = new TreeSet<>();
+            if (options.getFilesFrom().isPresent()) {
+                Files.readAllLines(options.getFilesFrom().get(), StandardCharsets.UTF_8).stream()
+                        .filter(line -> !line.isBlank())
+                        .map(generatedClassesDir::resolve)
+                        .forEach(javaFiles::add);
+            }
+            if (options.getChangedSchemas().isPresent()) {
+                List<String> changedSchemas = Files.readAllLines(options.getChangedSchemas().get(), StandardCharsets.UTF_8).stream()
+                        .filter(line -> !line.isBlank())
+                        .collect(Collectors.toList());
+                // A type whose class was not generated, such as one of a schema that failed to compile, has nothing to process
+                List<Path> affectedFiles = SchemaDependencyGraph.of(schemas).affectedSources(changedSchemas).stream()
+                        .map(generatedClassesDir::resolve)
+                        .filter(Files::isRegularFile)
+                        .collect(Collectors.toList());
+                javaFiles.addAll(affectedFiles);
+                log.info(changedSchemas.size() + " changed schemas affect " + affectedFiles.size() + " generated classes");
+            }
+            return new ArrayList<>(javaFiles);
+        }
+        String extension = options.isClassFiles() ? ".class" : ".java";
+        try (Stream<Path> paths = Files.walk(generatedClassesDir)) {
+            return paths.filter(path -> path.toString().endsWith(extension))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static FileOutcome processFile(ProcessorOptions options, SchemaRegistry schemas, NullabilityPlanCache plans,
+                                           ProcessingManifest manifest, MemoryBudget budget, Optional<SharedOutputCache> sharedCache,
+                                           ProcessorLog log, Path javaFile) {
+        String relativePath = relativePath(options, javaFile);
+        try {
+            FileTimings.Recorder recorder = new FileTimings.Recorder(relativePath);
+            ProcessorEvents.ProcessFile fileEvent = new ProcessorEvents.ProcessFile();
+            fileEvent.begin();
+            Path outputFile = options.getOutputDir().resolve(relativePath);
+            Optional<ProcessingManifest.Entry> previous = manifest.get(relativePath);
+            if (options.isStamped() && options.isInPlace() && hasStamp(javaFile, options, Optional.empty())) {
+                log.debug(() -> "Up to date " + relativePath + ", by its stamp");
+                return new FileOutcome(relativePath, previous.orElse(null), true, null, null);
+            }
+            byte[] input = Files.readAllBytes(javaFile);
+            String inputHash = ContentHash.of(input);
+            if (previous.isPresent() && isUpToDate(previous.get(), inputHash, outputFile, options.isInPlace())) {
+                log.debug(() -> "Up to date " + relativePath);
+                return new FileOutcome(relativePath, previous.get(), true, null, null);
+            }
+            if (options.isStamped() && !options.isInPlace() && hasStamp(outputFile, options, Optional.of(inputHash))) {
+                log.debug(() -> "Up to date " + relativePath + ", by the stamp of its output");
+                return new FileOutcome(relativePath, previous.orElse(null), true, null, null);
+            }
+            Optional<Long> schemaFingerprint = sharedCache.isPresent()
+                    ? schemas.fingerprint(className(relativePath))
+                    : Optional.empty();
+            Optional<byte[]> sharedOutput = sharedCache.flatMap(cache -> cache.get(inputHash, schemaFingerprint));
+            recorder.lap(FileTimings.Phase.READ);
+
+            // Only files that are annotated take heap beyond their bytes, the up-to-date and shared ones are never parsed
+            long reserved = sharedOutput.isPresent()
+                    ? 0
+                    : budget.reserve(MemoryBudget.estimate(input.length, options.isClassFiles()));
+            // Waiting for the budget is not charged to any phase
+            recorder.skip();
+            FileTimings timings;
+            String outputHash;
+            try {
+                byte[] output;
+                if (sharedOutput.isPresent()) {
+                    output = sharedOutput.get();
+                    log.debug(() -> "Reused " + relativePath + " from the shared cache");
+                } else if (options.isClassFiles()) {
+                    Path classesDir = options.getGeneratedClassesDir();
+                    output = ClassFileAnnotator.annotate(input, schemas, internalName -> readIfExists(classesDir.resolve(internalName + ".class")))
+                            .orElse(input);
+                    recorder.lap(FileTimings.Phase.ANNOTATE);
+                } else {
+                    // A source annotated in place by another processor version is annotated again, under a new stamp
+                    String source = SourceStamp.strip(new String(input, StandardCharsets.UTF_8));
+                    String annotatedSource = annotateSource(source, schemas, plans, options.getOutputMode(), recorder)
+                            .orElse(source);
+                    if (options.isStamped()) {
+                        annotatedSource = SourceStamp.stamp(options.getOutputFingerprint(), inputHash, annotatedSource);
+                    }
+                    output = annotatedSource.getBytes(StandardCharsets.UTF_8);
+                    if (sharedCache.isPresent()) {
+                        sharedCache.get().put(inputHash, schemaFingerprint, output);
+                    }
+                }
+                recorder.skip();
+                ProcessorEvents.WriteOutput writeEvent = new ProcessorEvents.WriteOutput();
+                writeEvent.begin();
+                boolean written;
+                if (options.isInPlace()) {
+                    written = !Arrays.equals(output, input);
+                    if (written) {
+                        OutputFiles.writeAtomically(outputFile, output);
+                    }
+                } else {
+                    // An unchanged output keeps its timestamp, so incremental compilation does not see it as modified
+                    written = OutputFiles.writeIfChanged(outputFile, output);
+                }
+                recorder.lap(FileTimings.Phase.WRITE);
+                writeEvent.file = relativePath;
+                writeEvent.bytes = output.length;
+                writeEvent.written = written;
+                writeEvent.commit();
+                timings = recorder.finish();
+                fileEvent.file = relativePath;
+                fileEvent.fieldCount = timings.getFieldCount();
+                fileEvent.inputBytes = input.length;
+                fileEvent.outputBytes = output.length;
+                fileEvent.commit();
+                outputHash = ContentHash.of(output);
+            } finally {
+                budget.release(reserved);
+            }
+            log.debug(() -> describe(timings));
+            return new FileOutcome(relativePath, new ProcessingManifest.Entry(inputHash, outputHash), false, null, timings);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.debug(() -> "Failed " + relativePath + ": " + e);
+            return new FileOutcome(relativePath, null, false, new FileFailure(javaFile, e), null);
+        }
+    }
+
+    /**
+     * @return The path of the generated file relative to the generated classes directory, with {@code /} separators as
+     * in the manifest.
+     */
+    static String relativePath(ProcessorOptions options, Path javaFile) {
+        return options.getGeneratedClassesDir().relativize(javaFile).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * @param relativePath The path of a generated source relative to the generated classes directory.
+     * @return The fully qualified name of the class the Avro compiler writes to it, the full name of its schema.
+     */
+    static String className(String relativePath) {
+        return relativePath.substring(0, relativePath.length() - ".java".length()).replace('/', '.');
+    }
+
+    /**
+     * @return A line such as {@code Processed Wide.java in 52.7 ms (read 0.1, parse 40.2, ...), 45 nodes touched, 41 annotations}.
+     */
+    private static String describe(FileTimings timings) {
+        String phases = Arrays.stream(FileTimings.Phase.values())
+                .map(phase -> String.format(Locale.ROOT, "%s %.1f", phase.jsonName(), timings.getNanos(phase) / 1e6))
+                .collect(Collectors.joining(", "));
+        return String.format(Locale.ROOT, "Processed %s in %.1f ms (%s), %d nodes touched, %d annotations", timings.getPath(),
+                timings.getTotalNanos() / 1e6, phases, timings.getNodesTouched(), timings.getAnnotationsAdded());
+    }
+
+    private static Optional<byte[]> readIfExists(Path file) throws IOException {
+        return Files.isRegularFile(file) ? Optional.of(Files.readAllBytes(file)) : Optional.empty();
+    }
+
+    /**
+     * Annotates the classes of a jar, such as a jar of generated classes without their sources or a sources jar, and
+     * writes a copy of the jar with the annotated classes to the output. Every other entry is copied as it is, in the same
+     * order.
+     * <p>
+     * With more than one worker the entries are annotated concurrently, a few entries ahead of the one being written. The
+     * entries are written as soon as they are annotated, in the order of the input jar, so only the entries in flight
+     * are held in memory.
+     * <p>
+     * The jar is processed as a whole, the manifest, the files to process and the stamps are not used.
+     *
+     * @param options The processor options, the generated classes "directory" is the jar and the output the jar to write.
+     * @param schemas The schemas to look the classes up in.
+     * @param log     Where the progress of every class is logged.
+     * @param start   When the run started, in {@link System#nanoTime()}.
+     * @return A report of the annotated classes and the ones that failed.
+     * @throws IOException If the jar cannot be read or the output jar cannot be written.
+     */
+    private static ProcessingReport processJar(ProcessorOptions options, SchemaRegistry schemas, ProcessorLog log, long start) throws IOException {
+        Path jar = options.getGeneratedClassesDir();
+        NullabilityPlanCache plans = loadPlanCache(options);
+        MemoryBudget budget = new MemoryBudget(options.getMemoryBudgetBytes());
+        List<FileFailure> failures = new ArrayList<>();
+        List<FileTimings> timings = new ArrayList<>();
+        Optional<ForkJoinPool> pool = options.getWorkers() <= 1
+                ? Optional.empty()
+                : Optional.of(new ForkJoinPool(options.getWorkers()));
+        // Enough entries ahead that no worker waits for the one being written
+        int entriesAhead = 2 * options.getWorkers();
+        try {
+            // Streamed entry by entry, only the entries in flight and the record class of a builder are held in memory
+            OutputFiles.writeIfChanged(options.getOutputDir(), out -> {
+                // Read as a plain zip, so the jar manifest is copied like any other entry
+                try (ZipFile zip = new ZipFile(jar.toFile()); ZipOutputStream zipOut = new ZipOutputStream(out)) {
+                    Deque<Future<JarEntryOutcome>> inFlight = new ArrayDeque<>();
+                    for (ZipEntry entry : Collections.list(zip.entries())) {
+                        if (pool.isPresent()) {
+                            inFlight.add(pool.get().submit(() -> processJarEntry(options, schemas, plans, budget, log, zip, entry)));
+                        } else {
+                            inFlight.add(CompletableFuture.completedFuture(processJarEntry(options, schemas, plans, budget, log, zip, entry)));
+                        }
+                        if (inFlight.size() > entriesAhead) {
+                            writeJarEntry(zipOut, awaitJarEntry(jar, inFlight.poll()), failures, timings);
+                        }
+                    }
+                    while (!inFlight.isEmpty()) {
+                        writeJarEntry(zipOut, awaitJarEntry(jar, inFlight.poll()), failures, timings);
+                    }
+                }
+            });
+        } finally {
+            pool.ifPresent(ForkJoinPool::shutdown);
+        }
+        if (options.getPlanCacheFile().isPresent()) {
+            plans.save(options.getPlanCacheFile().get());
+        }
+        return new ProcessingReport(timings.size(), 0, 0, failures, new ProcessingTimings(timings, System.nanoTime() - start));
+    }
+
+    /**
+     * Reads an entry of the jar and annotates it if it is a class, or a source without {@code --classes}.
+     *
+     * @throws IOException If the entry cannot be read, a class that cannot be annotated is reported as a failure instead.
+     */
+    private static JarEntryOutcome processJarEntry(ProcessorOptions options, SchemaRegistry schemas, NullabilityPlanCache plans,
+                                                   MemoryBudget budget, ProcessorLog log, ZipFile zip, ZipEntry entry) throws IOException {
+        byte[] content;
+        try (InputStream in = zip.getInputStream(entry)) {
+            content = in.readAllBytes();
+        }
+        if (!entry.getName().endsWith(options.isClassFiles() ? ".class" : ".java")) {
+            return new JarEntryOutcome(entry, content, null, null);
+        }
+        try {
+            long reserved = budget.reserve(MemoryBudget.estimate(content.length, options.isClassFiles()));
+            try {
+                // Reading and writing the jar are not charged to its entries
+                FileTimings.Recorder recorder = new FileTimings.Recorder(entry.getName());
+                byte[] output;
+                if (options.isClassFiles()) {
+                    output = ClassFileAnnotator.annotate(content, schemas, internalName -> readEntry(zip, internalName + ".class"))
+                            .orElse(content);
+                    recorder.lap(FileTimings.Phase.ANNOTATE);
+                } else {
+                    output = annotateSource(new String(content, StandardCharsets.UTF_8), schemas, plans, options.getOutputMode(), recorder)
+                            .map(annotatedSource -> annotatedSource.getBytes(StandardCharsets.UTF_8))
+                            .orElse(content);
+                }
+                FileTimings entryTimings = recorder.finish();
+                log.debug(() -> describe(entryTimings));
+                return new JarEntryOutcome(entry, output, entryTimings, null);
+            } finally {
+                budget.release(reserved);
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // The entry is copied as it is
+            return new JarEntryOutcome(entry, content, null, new FileFailure(options.getGeneratedClassesDir().resolve(entry.getName()), e));
+        }
+    }
+
+    private static JarEntryOutcome awaitJarEntry(Path jar, Future<JarEntryOutcome> outcome) throws IOException {
+        try {
+            return outcome.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing " + jar, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to process " + jar, e.getCause());
+        }
+    }
+
+    private static void writeJarEntry(ZipOutputStream zipOut, JarEntryOutcome outcome, List<FileFailure> failures,
+                                      List<FileTimings> timings) throws IOException {
+        if (outcome.failure() != null) {
+            failures.add(outcome.failure());
+        }
+        if (outcome.timings() != null) {
+            timings.add(outcome.timings());
+        }
+        ZipEntry copy = new ZipEntry(outcome.entry().getName());
+        // Keep the timestamps, so the same input jar always gives the same output jar
+        copy.setTime(outcome.entry().getTime());
+        zipOut.putNextEntry(copy);
+        zipOut.write(outcome.content());
+        zipOut.closeEntry();
+    }
+
+    private static Optional<byte[]> readEntry(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return Optional.of(in.readAllBytes());
+        }
+    }
+
+    /**
+     * @param file      The file whose first line is read.
+     * @param inputHash The hash of the generated source the stamp must hold, or empty for any source.
+     * @return Whether the file starts with a stamp of the current output fingerprint.
+     */
+    private static boolean hasStamp(Path file, ProcessorOptions options, Optional<String> inputHash) throws IOException {
+        return SourceStamp.read(file)
+                .filter(stamp -> stamp.fingerprint().equals(options.getOutputFingerprint()))
+                .filter(stamp -> inputHash.map(stamp.inputHash()::equals).orElse(true))
+                .isPresent();
+    }
+
+    private static boolean isUpToDate(ProcessingManifest.Entry previous, String inputHash, Path outputFile, boolean inPlace) throws IOException {
+        if (inPlace) {
+            // The file still holds what the processor wrote, it was not regenerated since
+            return previous.outputHash().equals(inputHash);
+        }
+        return previous.inputHash().equals(inputHash)
+                && Files.isRegularFile(outputFile)
+                && previous.outputHash().equals(ContentHash.of(Files.readAllBytes(outputFile)));
+    }
+
+    /**
+     * How an annotated class is written.
+     */
+    public enum OutputMode {
+        /**
+         * The whole class is printed again from the syntax tree, in JavaParser's formatting.
+         */
+        REPRINT,
+        /**
+         * Only the added annotations and imports are inserted into the generated source, the rest of it is kept as is.
+         */
+        PATCH
+    }
+
+    /**
+     * What annotating a class did: the methods, parameters, constructors and type arguments it annotated, and the
+     * annotations it had to add to them, which leaves out the ones they already carried.
+     */
+    static final class AnnotationCounts {
+        private int nodesTouched;
+        private int annotationsAdded;
+
+        void touched(boolean annotationAdded) {
+            nodesTouched++;
+            if (annotationAdded) {
+                annotationsAdded++;
+            }
+        }
+
+        int nodesTouched() {
+            return nodesTouched;
+        }
+
+        int annotationsAdded() {
+            return annotationsAdded;
+        }
+    }
+
+    /**
+     * @param content The annotated entry, or the entry as it is if it was not annotated.
+     * @param timings The phase timings, or {@code null} if the entry was not annotated.
+     * @param failure Why the entry could not be annotated, or {@code null}.
+     */
+    private record JarEntryOutcome(ZipEntry entry, byte[] content, FileTimings timings, FileFailure failure) {
+    }
+
+    /**
+     * Result of processing a single file: its new manifest entry and the timings of the processing, or the failure that
+     * stopped it.
+     */
+    private record FileOutcome(String relativePath, ProcessingManifest.Entry entry, boolean upToDate, FileFailure failure,
+                               FileTimings timings) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int exitCode = run(args);
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
+    }
+
+    /**
+     * Runs the processor with command line arguments, like {@link #main(String[])}, but returns the exit status instead
+     * of exiting the JVM. This is the entry point for callers that run the processor in their own process, such as the
+     * Gradle Worker API.
+     *
+     * With {@code --watch} the processor keeps running until the thread is interrupted, see {@link ProcessorWatcher}.
+     *
+     * @param args The command line arguments, see {@link ProcessorOptions#parse(String[])}.
+     * @return {@code 0} if every file was processed, {@code 1} if the arguments are invalid or any file failed.
+     * @throws IOException If the generated classes directory cannot be listed or the manifest cannot be read or written.
+     */
+    public static int run(String... args) throws IOException {
+        ProcessorOptions options;
+        try {
+            options = ProcessorOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+
+        if (options.isWatch()) {
+            return ProcessorWatcher.watch(options);
+        }
+        ProcessingReport report = process(options);
+        report.print(report.hasFailures() ? System.err : System.out);
+        return report.hasFailures() ? 1 : 0;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example;
+
+import org.apache.avro.Schema;
+
+import java.util.Set;
+
+/**
+ * The rules that decide whether a value of an Avro schema may be null, shared by {@link AvroClassProcessor} and the
+ * generation-time templates ({@link NullabilityTool}) so both write the same annotations.
+ */
+public final class AvroNullability {
+    private static final Set<Schema.Type> TEMPLATED_TYPES = Set.of(Schema.Type.ARRAY, Schema.Type.MAP);
+
+    private AvroNullability() {
+    }
+
+    /**
+     * @return Whether the schema is a union that includes {@code null}.
+     */
+    public static boolean isNullable(Schema schema) {
+        if (schema.getType() == Schema.Type.UNION) {
+            return schema.getTypes().stream().anyMatch(type -> type.getType() == Schema.Type.NULL);
+        }
+        return false;
+    }
+
+    /**
+     * @return The non-null branch of an optional union such as {@code ["null", "string"]}, or the schema itself for any
+     * other schema, including unions of several non-null types.
+     */
+    public static Schema getTrueFieldSchema(Schema avroSchema) {
+        if (avroSchema.getType() != Schema.Type.UNION) {
+            return avroSchema;
+        }
+
+        if (avroSchema.getTypes().size() >= 3) {
+            return avroSchema;
+        }
+
+        if (avroSchema.getTypes().stream().noneMatch(singleSchema -> singleSchema.getType() == Schema.Type.NULL)) {
+            return avroSchema;
+        }
+
+        return avroSchema.getTypes().stream()
+                .filter(singleSchema -> singleSchema.getType() != Schema.Type.NULL)
+                .findFirst()
+                .get();
+    }
+
+    /**
+     * @return Whether the schema maps to a generic Java type (a list or a map), whose type arguments get annotated too.
+     */
+    public static boolean isTemplatedType(Schema schema) {
+        return TEMPLATED_TYPES.contains(getTrueFieldSchema(schema).getType());
+    }
+}
@@ -0,0 +1,498 @@
+package org.example;
+
+import org.apache.avro.Schema;
+import org.example.NullabilityPlan.FieldPlan;
+import org.example.NullabilityPlan.TypeArgumentLevel;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.TypePath;
+import org.objectweb.asm.TypeReference;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Adds the nullability annotations to the compiled classes of the generated records and their {@code Builder}s, without
+ * their sources. The classes get the same annotations {@link AvroClassProcessor} writes into the sources, in the class
+ * file attributes javac writes for them: the JetBrains annotations as invisible declaration annotations together with
+ * the type annotations of the annotated return and parameter types, including their type arguments, and
+ * {@code @Deprecated} as a visible annotation plus the {@code Deprecated} attribute of the {@code @deprecated} tag.
+ * <p>
+ * A record class is recognized by its {@code SCHEMA$} field, and its schema is looked up in the {@link SchemaRegistry} or
+ * read from the string constants that initialize that field. A builder takes the schema of its enclosing record class.
+ */
+public final class ClassFileAnnotator {
+    static final String NOT_NULL_DESCRIPTOR = "Lorg/jetbrains/annotations/NotNull;";
+    static final String NULLABLE_DESCRIPTOR = "Lorg/jetbrains/annotations/Nullable;";
+    static final String DEPRECATED_DESCRIPTOR = "Ljava/lang/Deprecated;";
+    private static final String SCHEMA_FIELD_NAME = "SCHEMA$";
+    private static final String SCHEMA_DESCRIPTOR = "Lorg/apache/avro/Schema;";
+    private static final String BUILDER_BASE_CLASS = "org/apache/avro/specific/SpecificRecordBuilderBase";
+    private static final String BUILD_METHOD_NAME = "build";
+    private static final String NEW_BUILDER_METHOD_NAME = "newBuilder";
+    private static final String CONSTRUCTOR_NAME = "<init>";
+    private static final String STATIC_INITIALIZER_NAME = "<clinit>";
+
+    private ClassFileAnnotator() {
+    }
+
+    /**
+     * Reads other class files of the same output, such as the record class enclosing a builder.
+     */
+    @FunctionalInterface
+    public interface ClassFiles {
+        /**
+         * @param internalName The internal name of the class, as in {@code com/example/Record}.
+         * @return The class file, or empty if there is no such class.
+         * @throws IOException If the class file cannot be read.
+         */
+        Optional<byte[]> read(String internalName) throws IOException;
+    }
+
+    /**
+     * Adds the nullability annotations to a compiled class.
+     *
+     * @param classFile  The class file.
+     * @param schemas    The schemas to look the record up in, records missing from it fall back to their {@code SCHEMA$}
+     *                   constants.
+     * @param classFiles The other classes of the same output, a builder reads the schema of its record class from there.
+     * @return The annotated class file, or empty if the class is neither a generated record nor a builder (enums and
+     * any other class).
+     * @throws IOException If the class file of the enclosing record cannot be read.
+     */
+    public static Optional<byte[]> annotate(byte[] classFile, SchemaRegistry schemas, ClassFiles classFiles) throws IOException {
+        ClassReader reader = new ClassReader(classFile);
+        ClassMembers members = ClassMembers.of(reader);
+
+        Map<String, MethodPlan> plans;
+        if (members.isRecord()) {
+            plans = recordPlans(members, NullabilityPlan.of(schemaOf(members.name(), classFile, schemas)));
+        } else if (members.isBuilder()) {
+            String recordName = members.name().substring(0, members.name().lastIndexOf('$'));
+            byte[] recordClassFile = classFiles.read(recordName)
+                    .orElseThrow(() -> new IllegalStateException("No class file for " + recordName.replace('/', '.')));
+            plans = builderPlans(members, NullabilityPlan.of(schemaOf(recordName, recordClassFile, schemas)));
+        } else {
+            // Enums and anything else the compiler did not generate as a record, nothing to annotate there
+            return Optional.empty();
+        }
+        addCommonPlans(members, plans);
+
+        ClassWriter writer = new ClassWriter(reader, 0);
+        reader.accept(new AnnotatingClassVisitor(writer, plans), 0);
+        return Optional.of(writer.toByteArray());
+    }
+
+    /**
+     * Reads the schema of a generated record from the string constants its static initializer passes to
+     * {@code Schema.Parser.parse} before storing the result in {@code SCHEMA$}.
+     *
+     * @param classFile The class file of the record.
+     * @return The parsed schema.
+     * @throws IllegalStateException If the class does not initialize a {@code SCHEMA$} field.
+     */
+    public static Schema extractSchema(byte[] classFile) {
+        SchemaConstantsCollector collector = new SchemaConstantsCollector();
+        new ClassReader(classFile).accept(collector, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        if (!collector.complete) {
+            throw new IllegalStateException("No SCHEMA$ initializer in " + collector.className.replace('/', '.'));
+        }
+        // The Avro compiler splits long schemas into several literals, which Schema.Parser.parse(String, String...) joins
+        return new Schema.Parser().parse(String.join("", collector.constants));
+    }
+
+    private static Schema schemaOf(String internalName, byte[] classFile, SchemaRegistry schemas) {
+        return schemas.get(internalName.replace('/', '.')).orElseGet(() -> extractSchema(classFile));
+    }
+
+    private static Map<String, MethodPlan> recordPlans(ClassMembers members, NullabilityPlan nullabilityPlan) {
+        Map<String, MethodPlan> plans = new HashMap<>();
+        for (FieldMember field : members.fields()) {
+            FieldPlan avroField = nullabilityPlan.field(field.name()).orElse(null);
+            if (avroField == null) {
+                continue;
+            }
+            String annotation = annotationDescriptor(avroField.nullable());
+            MethodPlan getter = plan(plans, "get" + capitalize(field.name()), 0).annotateMethod(annotation);
+            MethodPlan setter = plan(plans, "set" + capitalize(field.name()), 1).annotateParameter(annotation);
+            if (avroField.isTemplated()) {
+                List<TypeArgumentAnnotation> typeArguments = typeArgumentAnnotations(avroField.typeArguments());
+                getter.annotateReturnTypeArguments(typeArguments);
+                setter.annotateParameterTypeArguments(typeArguments);
+            }
+        }
+        return plans;
+    }
+
+    private static Map<String, MethodPlan> builderPlans(ClassMembers members, NullabilityPlan nullabilityPlan) {
+        Map<String, MethodPlan> plans = new HashMap<>();
+        for (FieldMember field : members.fields()) {
+            FieldPlan avroField = nullabilityPlan.field(field.name()).orElse(null);
+            MethodPlan getter = plan(plans, "get" + capitalize(field.name()), 0);
+            MethodPlan setter = plan(plans, "set" + capitalize(field.name()), 1).annotateMethod(NOT_NULL_DESCRIPTOR);
+            plan(plans, "clear" + capitalize(field.name()), 0).annotateMethod(NOT_NULL_DESCRIPTOR);
+            if (avroField != null) {
+                // Fields in the builder from the schema, any of them may still be unset
+                getter.annotateMethod(annotationDescriptor(!field.isPrimitive()));
+                setter.annotateParameter(annotationDescriptor(avroField.nullable()));
+                if (avroField.isTemplated()) {
+                    List<TypeArgumentAnnotation> typeArguments = typeArgumentAnnotations(avroField.typeArguments());
+                    getter.annotateReturnTypeArguments(typeArguments);
+                    setter.annotateParameterTypeArguments(typeArguments);
+                }
+            } else {
+                // The additional builder fields of nested records, the ones that end with the word "Builder"
+                getter.annotateMethod(NULLABLE_DESCRIPTOR);
+                setter.annotateParameter(NULLABLE_DESCRIPTOR);
+            }
+        }
+        return plans;
+    }
+
+    private static void addCommonPlans(ClassMembers members, Map<String, MethodPlan> plans) {
+        plan(plans, BUILD_METHOD_NAME, 0).annotateMethod(NOT_NULL_DESCRIPTOR);
+        for (int parameterCount : members.parameterCounts(NEW_BUILDER_METHOD_NAME)) {
+            MethodPlan newBuilder = plan(plans, NEW_BUILDER_METHOD_NAME, parameterCount).annotateMethod(NOT_NULL_DESCRIPTOR);
+            if (parameterCount > 0) {
+                newBuilder.annotateParameter(NULLABLE_DESCRIPTOR);
+            }
+        }
+        for (int parameterCount : members.parameterCounts(CONSTRUCTOR_NAME)) {
+            plan(plans, CONSTRUCTOR_NAME, parameterCount).deprecate();
+        }
+    }
+
+    private static MethodPlan plan(Map<String, MethodPlan> plans, String name, int parameterCount) {
+        return plans.computeIfAbsent(key(name, parameterCount), k -> new MethodPlan());
+    }
+
+    private static String key(String name, int parameterCount) {
+        return name + "/" + parameterCount;
+    }
+
+    private static String annotationDescriptor(boolean isNullable) {
+        return isNullable ? NULLABLE_DESCRIPTOR : NOT_NULL_DESCRIPTOR;
+    }
+
+    private static String capitalize(String fieldName) {
+        return fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
+    }
+
+    /**
+     * The annotations one method gets. Only the first annotation given for the method or its parameter counts, like the
+     * source processor never adds a second nullability annotation to a member.
+     */
+    private static final class MethodPlan {
+        private String methodAnnotation;
+        private String parameterAnnotation;
+        private final List<TypeArgumentAnnotation> returnTypeArguments = new ArrayList<>();
+        private final List<TypeArgumentAnnotation> parameterTypeArguments = new ArrayList<>();
+        private boolean deprecated;
+
+        MethodPlan annotateMethod(String descriptor) {
+            if (methodAnnotation == null) {
+                methodAnnotation = descriptor;
+            }
+            return this;
+        }
+
+        MethodPlan annotateParameter(String descriptor) {
+            if (parameterAnnotation == null) {
+                parameterAnnotation = descriptor;
+            }
+            return this;
+        }
+
+        void annotateReturnTypeArguments(List<TypeArgumentAnnotation> annotations) {
+            returnTypeArguments.addAll(annotations);
+        }
+
+        void annotateParameterTypeArguments(List<TypeArgumentAnnotation> annotations) {
+            parameterTypeArguments.addAll(annotations);
+        }
+
+        void deprecate() {
+            deprecated = true;
+        }
+    }
+
+    /**
+     * The annotations of the type arguments of a list or map type, as in {@code List<java.lang.@NotNull String>}, level
+     * by level down the element of a list or the value of a map. They are computed once per field and shared by its
+     * getter and setter.
+     *
+     * @param levels The type argument levels of the field's nullability plan.
+     * @return The annotations with their type paths, in {@link TypePath#fromString} syntax.
+     */
+    private static List<TypeArgumentAnnotation> typeArgumentAnnotations(List<TypeArgumentLevel> levels) {
+        List<TypeArgumentAnnotation> annotations = new ArrayList<>();
+        StringBuilder path = new StringBuilder();
+        for (TypeArgumentLevel level : levels) {
+            if (level.map()) {
+                annotations.add(new TypeArgumentAnnotation(path + "0;", NOT_NULL_DESCRIPTOR));
+                path.append("1;");
+            } else {
+                path.append("0;");
+            }
+            annotations.add(new TypeArgumentAnnotation(path.toString(), annotationDescriptor(level.nullable())));
+        }
+        return List.copyOf(annotations);
+    }
+
+    private record TypeArgumentAnnotation(String path, String descriptor) {
+    }
+
+    private record FieldMember(String name, String descriptor) {
+        boolean isPrimitive() {
+            int sort = Type.getType(descriptor).getSort();
+            return sort != Type.OBJECT && sort != Type.ARRAY;
+        }
+    }
+
+    /**
+     * The instance fields and the method signatures of a class, collected before it is rewritten.
+     */
+    private static final class ClassMembers extends ClassVisitor {
+        private String name;
+        private String superName;
+        private boolean isEnum;
+        private boolean hasSchemaField;
+        private final List<FieldMember> fields = new ArrayList<>();
+        private final Map<String, Set<Integer>> parameterCounts = new HashMap<>();
+
+        private ClassMembers() {
+            super(Opcodes.ASM9);
+        }
+
+        static ClassMembers of(ClassReader reader) {
+            ClassMembers members = new ClassMembers();
+            reader.accept(members, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            return members;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.name = name;
+            this.superName = superName;
+            this.isEnum = (access & Opcodes.ACC_ENUM) != 0;
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            if ((access & Opcodes.ACC_STATIC) != 0) {
+                hasSchemaField |= name.equals(SCHEMA_FIELD_NAME) && descriptor.equals(SCHEMA_DESCRIPTOR);
+            } else if ((access & Opcodes.ACC_SYNTHETIC) == 0) {
+                fields.add(new FieldMember(name, descriptor));
+            }
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            if (isAnnotatable(access, name)) {
+                parameterCounts.computeIfAbsent(name, k -> new HashSet<>()).add(Type.getArgumentTypes(descriptor).length);
+            }
+            return null;
+        }
+
+        String name() {
+            return name;
+        }
+
+        List<FieldMember> fields() {
+            return fields;
+        }
+
+        boolean isRecord() {
+            return hasSchemaField && !isEnum;
+        }
+
+        boolean isBuilder() {
+            return BUILDER_BASE_CLASS.equals(superName) && name.contains("$");
+        }
+
+        Set<Integer> parameterCounts(String methodName) {
+            return parameterCounts.getOrDefault(methodName, Set.of());
+        }
+    }
+
+    /**
+     * Constructors only get deprecated when they are public. Bridge methods, such as {@code Object build()}, get the
+     * annotations of the method they bridge to, as javac copies them, but no other synthetic method is annotated.
+     */
+    private static boolean isAnnotatable(int access, String name) {
+        if ((access & Opcodes.ACC_SYNTHETIC) != 0 && (access & Opcodes.ACC_BRIDGE) == 0) {
+            return false;
+        }
+        return !name.equals(CONSTRUCTOR_NAME) || (access & Opcodes.ACC_PUBLIC) != 0;
+    }
+
+    private static final class AnnotatingClassVisitor extends ClassVisitor {
+        private final Map<String, MethodPlan> plans;
+
+        AnnotatingClassVisitor(ClassVisitor next, Map<String, MethodPlan> plans) {
+            super(Opcodes.ASM9, next);
+            this.plans = plans;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            MethodPlan plan = isAnnotatable(access, name)
+                    ? plans.get(key(name, Type.getArgumentTypes(descriptor).length))
+                    : null;
+            if (plan == null) {
+                // Unchanged methods are copied from the original class file as they are
+                return super.visitMethod(access, name, descriptor, signature, exceptions);
+            }
+            int newAccess = plan.deprecated ? access | Opcodes.ACC_DEPRECATED : access;
+            MethodVisitor next = super.visitMethod(newAccess, name, descriptor, signature, exceptions);
+            return new AnnotatingMethodVisitor(next, plan, descriptor, signature != null);
+        }
+    }
+
+    /**
+     * Adds the planned annotations once all the existing ones were visited, which is right before the code, skipping any
+     * the method already has so that annotating an annotated class changes nothing.
+     */
+    private static final class AnnotatingMethodVisitor extends MethodVisitor {
+        private final MethodPlan plan;
+        private final boolean hasReturnValue;
+        private final boolean hasParameter;
+        private final boolean isGeneric;
+        private final Set<String> existingMethodAnnotations = new HashSet<>();
+        private final Set<String> existingParameterAnnotations = new HashSet<>();
+        private final Set<String> existingTypeAnnotations = new HashSet<>();
+        private boolean annotated;
+
+        AnnotatingMethodVisitor(MethodVisitor next, MethodPlan plan, String descriptor, boolean isGeneric) {
+            super(Opcodes.ASM9, next);
+            this.plan = plan;
+            this.hasReturnValue = Type.getReturnType(descriptor).getSort() != Type.VOID;
+            this.hasParameter = Type.getArgumentTypes(descriptor).length > 0;
+            this.isGeneric = isGeneric;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            existingMethodAnnotations.add(descriptor);
+            return super.visitAnnotation(descriptor, visible);
+        }
+
+        @Override
+        public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
+            if (parameter == 0) {
+                existingParameterAnnotations.add(descriptor);
+            }
+            return super.visitParameterAnnotation(parameter, descriptor, visible);
+        }
+
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            existingTypeAnnotations.add(typeAnnotationKey(typeRef, typePath == null ? "" : typePath.toString(), descriptor));
+            return super.visitTypeAnnotation(typeRef, typePath, descriptor, visible);
+        }
+
+        @Override
+        public void visitCode() {
+            addAnnotations();
+            super.visitCode();
+        }
+
+        @Override
+        public void visitEnd() {
+            addAnnotations();
+            super.visitEnd();
+        }
+
+        private void addAnnotations() {
+            if (annotated) {
+                return;
+            }
+            annotated = true;
+
+            if (plan.deprecated && existingMethodAnnotations.add(DEPRECATED_DESCRIPTOR)) {
+                super.visitAnnotation(DEPRECATED_DESCRIPTOR, true).visitEnd();
+            }
+            int returnType = TypeReference.newTypeReference(TypeReference.METHOD_RETURN).getValue();
+            if (plan.methodAnnotation != null && hasReturnValue) {
+                if (existingMethodAnnotations.add(plan.methodAnnotation)) {
+                    super.visitAnnotation(plan.methodAnnotation, false).visitEnd();
+                }
+                addTypeAnnotation(returnType, "", plan.methodAnnotation);
+            }
+            int firstParameterType = TypeReference.newFormalParameterReference(0).getValue();
+            if (plan.parameterAnnotation != null && hasParameter) {
+                if (existingParameterAnnotations.add(plan.parameterAnnotation)) {
+                    super.visitParameterAnnotation(0, plan.parameterAnnotation, false).visitEnd();
+                }
+                addTypeAnnotation(firstParameterType, "", plan.parameterAnnotation);
+            }
+            if (isGeneric) {
+                plan.returnTypeArguments.forEach(argument -> addTypeAnnotation(returnType, argument.path(), argument.descriptor()));
+                plan.parameterTypeArguments.forEach(argument -> addTypeAnnotation(firstParameterType, argument.path(), argument.descriptor()));
+            }
+        }
+
+        private void addTypeAnnotation(int typeRef, String path, String descriptor) {
+            if (existingTypeAnnotations.add(typeAnnotationKey(typeRef, path, descriptor))) {
+                super.visitTypeAnnotation(typeRef, path.isEmpty() ? null : TypePath.fromString(path), descriptor, false).visitEnd();
+            }
+        }
+
+        private static String typeAnnotationKey(int typeRef, String path, String descriptor) {
+            return typeRef + ":" + path + ":" + descriptor;
+        }
+    }
+
+    /**
+     * Collects the string constants of the static initializer up to the instruction that stores {@code SCHEMA$}.
+     */
+    private static final class SchemaConstantsCollector extends ClassVisitor {
+        private String className;
+        private final List<String> constants = new ArrayList<>();
+        private boolean complete;
+
+        SchemaConstantsCollector() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.className = name;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            if (!name.equals(STATIC_INITIALIZER_NAME)) {
+                return null;
+            }
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public void visitLdcInsn(Object value) {
+                    if (!complete && value instanceof String constant) {
+                        constants.add(constant);
+                    }
+                }
+
+                @Override
+                public void visitFieldInsn(int opcode, String owner, String fieldName, String descriptor) {
+                    if (opcode == Opcodes.PUTSTATIC && owner.equals(className) && fieldName.equals(SCHEMA_FIELD_NAME)) {
+                        complete = true;
+                    }
+                }
+            };
+        }
+    }
+}
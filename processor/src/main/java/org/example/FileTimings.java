@@ -0,0 +1,137 @@
+package org.example;
+
+import java.util.Locale;
+
+/**
+ * Where the time went while processing one file, phase by phase, and how much of the syntax tree it annotated.
+ */
+public final class FileTimings {
+    private final String path;
+    private final long[] phaseNanos;
+    private final int fieldCount;
+    private final int nodesTouched;
+    private final int annotationsAdded;
+
+    /**
+     * The phases of processing a file, in the order they run. Compiled classes are only read, annotated and written.
+     */
+    public enum Phase {
+        READ,
+        PARSE,
+        EXTRACT_SCHEMA,
+        ANNOTATE,
+        PRINT,
+        WRITE;
+
+        /**
+         * @return The name of the phase in the JSON report, such as {@code extractSchema}.
+         */
+        public String jsonName() {
+            String[] words = name().toLowerCase(Locale.ROOT).split("_");
+            StringBuilder name = new StringBuilder(words[0]);
+            for (int i = 1; i < words.length; i++) {
+                name.append(Character.toUpperCase(words[i].charAt(0))).append(words[i].substring(1));
+            }
+            return name.toString();
+        }
+    }
+
+    private FileTimings(String path, long[] phaseNanos, int fieldCount, int nodesTouched, int annotationsAdded) {
+        this.path = path;
+        this.phaseNanos = phaseNanos;
+        this.fieldCount = fieldCount;
+        this.nodesTouched = nodesTouched;
+        this.annotationsAdded = annotationsAdded;
+    }
+
+    /**
+     * @return The path of the file relative to the generated classes directory, or of the entry in the jar.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public long getNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : phaseNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of fields of the record schema, {@code 0} for enums and compiled classes.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return The number of syntax tree nodes the annotation pass annotated, whether they needed a new annotation or
+     * already had it, {@code 0} for compiled classes.
+     */
+    public int getNodesTouched() {
+        return nodesTouched;
+    }
+
+    /**
+     * @return The number of annotations added to the source, {@code 0} for compiled classes.
+     */
+    public int getAnnotationsAdded() {
+        return annotationsAdded;
+    }
+
+    /**
+     * Measures the phases of one file: every {@link #lap(Phase)} charges the time since the previous lap to a phase.
+     * Not thread safe, every file gets its own.
+     */
+    static final class Recorder {
+        private final String path;
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private long lapStart = System.nanoTime();
+        private int fieldCount;
+        private int nodesTouched;
+        private int annotationsAdded;
+
+        /**
+         * @param path The path of the file, see {@link FileTimings#getPath()}.
+         */
+        Recorder(String path) {
+            this.path = path;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        void lap(Phase phase) {
+            long now = System.nanoTime();
+            phaseNanos[phase.ordinal()] += now - lapStart;
+            lapStart = now;
+        }
+
+        /**
+         * Starts the next lap now, the time since the previous one is not charged to any phase.
+         */
+        void skip() {
+            lapStart = System.nanoTime();
+        }
+
+        void countFields(int fieldCount) {
+            this.fieldCount = fieldCount;
+        }
+
+        void countAnnotations(int nodesTouched, int annotationsAdded) {
+            this.nodesTouched = nodesTouched;
+            this.annotationsAdded = annotationsAdded;
+        }
+
+        FileTimings finish() {
+            return new FileTimings(path, phaseNanos.clone(), fieldCount, nodesTouched, annotationsAdded);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.example;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Problem;
+import com.github.javaparser.ast.CompilationUnit;
+import org.example.AvroClassProcessor.OutputMode;
+
+import java.util.stream.Collectors;
+
+/**
+ * Parses the sources the Avro compiler generates, with only the parser features the annotation pass needs.
+ * <p>
+ * The generated sources always compile, so they are parsed without the validation of a language level, which walks the
+ * whole tree once more. The line separator of the source is not detected, the printer uses its own and the
+ * {@link SourcePatcher} detects it itself. Token ranges are kept, every node needs its position for the comments and
+ * for the patches.
+ * <p>
+ * Attributing the comments to the nodes they belong to takes most of the heap of a parse, and grows faster than the
+ * source for wide records. Only {@link OutputMode#REPRINT} needs it, since the reprinted class must keep every comment
+ * of the generated one. {@link OutputMode#PATCH} copies the comments as they are in the source and finds the constructor
+ * javadoc it extends by its text, so it parses without attributing comments.
+ */
+final class GeneratedSourceParser {
+    private static final ParserConfiguration REPRINT_CONFIGURATION = leanConfiguration().setAttributeComments(true);
+    private static final ParserConfiguration PATCH_CONFIGURATION = leanConfiguration().setAttributeComments(false);
+    // JavaParser instances are not thread safe, but can be reused for consecutive files on the same thread
+    private static final ThreadLocal<JavaParser> REPRINT_PARSER = ThreadLocal.withInitial(() -> new JavaParser(REPRINT_CONFIGURATION));
+    private static final ThreadLocal<JavaParser> PATCH_PARSER = ThreadLocal.withInitial(() -> new JavaParser(PATCH_CONFIGURATION));
+
+    private GeneratedSourceParser() {
+    }
+
+    private static ParserConfiguration leanConfiguration() {
+        return new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.RAW)
+                .setDetectOriginalLineSeparator(false)
+                .setStoreTokens(true);
+    }
+
+    /**
+     * @param outputMode How the annotated class is written, which decides whether the comments are attributed.
+     * @return The configuration the sources are parsed with for this output mode, shared by all parsers.
+     */
+    static ParserConfiguration configuration(OutputMode outputMode) {
+        return outputMode == OutputMode.PATCH ? PATCH_CONFIGURATION : REPRINT_CONFIGURATION;
+    }
+
+    /**
+     * @throws RuntimeException If the source does not parse.
+     */
+    static CompilationUnit parse(String source, OutputMode outputMode) {
+        JavaParser parser = outputMode == OutputMode.PATCH ? PATCH_PARSER.get() : REPRINT_PARSER.get();
+        ParseResult<CompilationUnit> parseResult = parser.parse(source);
+        // A parser holds on to everything of its last parse, as much heap as the syntax tree itself, until it parses again.
+        // Parsing nothing lets it go, so an idle worker does not keep the tree of its last file alive.
+        parser.parse("");
+        return parseResult.getResult()
+                .filter(result -> parseResult.isSuccessful())
+                .orElseThrow(() -> new RuntimeException("Failed to parse Java file: " + parseResult.getProblems().stream()
+                        .map(Problem::getVerboseMessage)
+                        .collect(Collectors.joining(", "))));
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Limits the heap the files processed at the same time may take, so the peak heap of a run depends on the budget and
+ * the largest files, not on how many files the tree holds or how many workers process them.
+ * <p>
+ * Every file reserves an estimate of the heap it takes before it is read and releases it once its output is written. A
+ * worker whose file does not fit into what is left waits until other files are done. The files get their reservations
+ * in the order they ask for them, so a large file is not overtaken by small ones forever. A file that is larger than
+ * the whole budget is processed once every other file is done, on its own.
+ */
+final class MemoryBudget {
+    /**
+     * The heap a source takes per byte while it is processed. JavaParser keeps its syntax tree with the tokens and
+     * comments at about 60 bytes per source byte, and parsing and printing it take as much again for a while. A 2 MB
+     * source needs about 300 MB of heap.
+     */
+    static final int SOURCE_HEAP_PER_BYTE = 160;
+    /**
+     * The heap a class file takes per byte while it is processed: the class file, its copy in the class writer and the
+     * annotated class file.
+     */
+    static final int CLASS_HEAP_PER_BYTE = 4;
+
+    private final long budgetBytes;
+    private long reservedBytes;
+    private final Deque<Thread> waiting = new ArrayDeque<>();
+
+    /**
+     * @param budgetBytes The heap all files in flight may take together.
+     */
+    MemoryBudget(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @param fileBytes The size of the file to process.
+     * @param classFile Whether the file is a class file rather than a source.
+     * @return The heap processing the file takes, as estimated for the budget.
+     */
+    static long estimate(long fileBytes, boolean classFile) {
+        return fileBytes * (classFile ? CLASS_HEAP_PER_BYTE : SOURCE_HEAP_PER_BYTE);
+    }
+
+    /**
+     * Waits until the estimate fits into the budget, and reserves it.
+     *
+     * @param bytes The estimated heap of a file.
+     * @return The bytes actually reserved, to {@linkplain #release(long) release} when the file is done.
+     * @throws InterruptedException If the thread is interrupted while it waits.
+     */
+    synchronized long reserve(long bytes) throws InterruptedException {
+        long reserved = Math.min(bytes, budgetBytes);
+        Thread thread = Thread.currentThread();
+        waiting.addLast(thread);
+        try {
+            while (waiting.peekFirst() != thread || (reservedBytes > 0 && reservedBytes + reserved > budgetBytes)) {
+                wait();
+            }
+            reservedBytes += reserved;
+            return reserved;
+        } finally {
+            waiting.remove(thread);
+            // The next file in line may fit as well
+            notifyAll();
+        }
+    }
+
+    synchronized void release(long reserved) {
+        reservedBytes -= reserved;
+        notifyAll();
+    }
+}
@@ -0,0 +1,99 @@
+package org.example;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index over the members of a generated Avro class, built in a single traversal of the compilation unit.
+ * Methods are keyed by name and parameter count, and members of the top-level record class are kept apart from
+ * members of its nested classes (the {@code Builder}), so lookups never have to rescan the tree or walk up to the
+ * enclosing type declaration.
+ */
+public final class MethodIndex {
+    private final Map<String, List<MethodDeclaration>> topLevelMethods = new HashMap<>();
+    private final Map<String, List<MethodDeclaration>> builderMethods = new HashMap<>();
+    private final Map<String, List<MethodDeclaration>> methodsByName = new HashMap<>();
+    private final List<FieldDeclaration> topLevelFields = new ArrayList<>();
+    private final List<FieldDeclaration> builderFields = new ArrayList<>();
+    private final List<ConstructorDeclaration> constructors = new ArrayList<>();
+
+    private MethodIndex() {
+    }
+
+    /**
+     * Builds the index for the given compilation unit.
+     *
+     * @param cu The parsed generated class.
+     * @return The index of all type members declared in the compilation unit.
+     */
+    public static MethodIndex of(CompilationUnit cu) {
+        MethodIndex index = new MethodIndex();
+        cu.getTypes().forEach(index::indexMembers);
+        return index;
+    }
+
+    private void indexMembers(TypeDeclaration<?> type) {
+        boolean isTopLevel = !type.isNestedType();
+        for (BodyDeclaration<?> member : type.getMembers()) {
+            if (member.isMethodDeclaration()) {
+                MethodDeclaration method = member.asMethodDeclaration();
+                String key = key(method.getNameAsString(), method.getParameters().size());
+                (isTopLevel ? topLevelMethods : builderMethods).computeIfAbsent(key, k -> new ArrayList<>()).add(method);
+                methodsByName.computeIfAbsent(method.getNameAsString(), k -> new ArrayList<>()).add(method);
+            } else if (member.isFieldDeclaration()) {
+                (isTopLevel ? topLevelFields : builderFields).add(member.asFieldDeclaration());
+            } else if (member.isConstructorDeclaration()) {
+                constructors.add(member.asConstructorDeclaration());
+            } else if (member.isTypeDeclaration()) {
+                indexMembers(member.asTypeDeclaration());
+            }
+        }
+    }
+
+    /**
+     * @return Methods of the top-level record class with the given name and number of parameters.
+     */
+    public List<MethodDeclaration> topLevelMethods(String name, int parameterCount) {
+        return topLevelMethods.getOrDefault(key(name, parameterCount), Collections.emptyList());
+    }
+
+    /**
+     * @return Methods of the nested classes (the {@code Builder}) with the given name and number of parameters.
+     */
+    public List<MethodDeclaration> builderMethods(String name, int parameterCount) {
+        return builderMethods.getOrDefault(key(name, parameterCount), Collections.emptyList());
+    }
+
+    /**
+     * @return Methods with the given name in any class of the compilation unit, regardless of their parameters.
+     */
+    public List<MethodDeclaration> methods(String name) {
+        return methodsByName.getOrDefault(name, Collections.emptyList());
+    }
+
+    public List<FieldDeclaration> topLevelFields() {
+        return topLevelFields;
+    }
+
+    public List<FieldDeclaration> builderFields() {
+        return builderFields;
+    }
+
+    public List<ConstructorDeclaration> constructors() {
+        return constructors;
+    }
+
+    private static String key(String name, int parameterCount) {
+        return name + '/' + parameterCount;
+    }
+}
@@ -0,0 +1,110 @@
+package org.example;
+
+import org.apache.avro.Schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The nullability of every field of a record schema, compiled once from the schema by the rules of
+ * {@link AvroNullability}, so that annotating a class needs neither the schema nor another walk over it.
+ * <p>
+ * A field of a list or map type also holds the annotations of its type arguments, one {@link TypeArgumentLevel} per
+ * nesting level: {@code map<array<string>>} gives a map level followed by an array level. The nested type always sits in
+ * the last type argument, the element of a list and the value of a map, so the levels form a chain rather than a tree.
+ */
+public final class NullabilityPlan {
+    private final Map<String, FieldPlan> fields;
+
+    NullabilityPlan(List<FieldPlan> fields) {
+        Map<String, FieldPlan> byName = new LinkedHashMap<>();
+        fields.forEach(field -> byName.put(field.name(), field));
+        this.fields = Collections.unmodifiableMap(byName);
+    }
+
+    /**
+     * @param recordSchema The schema of a generated record class.
+     * @return The plan of its fields.
+     */
+    public static NullabilityPlan of(Schema recordSchema) {
+        List<FieldPlan> fields = new ArrayList<>(recordSchema.getFields().size());
+        for (Schema.Field field : recordSchema.getFields()) {
+            fields.add(new FieldPlan(field.name(), AvroNullability.isNullable(field.schema()), typeArguments(field.schema())));
+        }
+        return new NullabilityPlan(fields);
+    }
+
+    /**
+     * @param fieldSchema The schema of a value, a list or map type in the common case.
+     * @return The annotations of its type arguments from the outermost level in, empty if it is neither a list nor a map.
+     */
+    static List<TypeArgumentLevel> typeArguments(Schema fieldSchema) {
+        List<TypeArgumentLevel> levels = new ArrayList<>();
+        Schema schema = AvroNullability.getTrueFieldSchema(fieldSchema);
+        while (true) {
+            switch (schema.getType()) {
+                case ARRAY -> {
+                    levels.add(new TypeArgumentLevel(false, AvroNullability.isNullable(schema.getElementType())));
+                    schema = AvroNullability.getTrueFieldSchema(schema.getElementType());
+                }
+                case MAP -> {
+                    levels.add(new TypeArgumentLevel(true, AvroNullability.isNullable(schema.getValueType())));
+                    schema = AvroNullability.getTrueFieldSchema(schema.getValueType());
+                }
+                default -> {
+                    return levels;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The plan of the field, or empty if the schema has no field of that name.
+     */
+    public Optional<FieldPlan> field(String name) {
+        return Optional.ofNullable(fields.get(name));
+    }
+
+    /**
+     * @return The plans of all fields, in schema order.
+     */
+    public List<FieldPlan> fields() {
+        return List.copyOf(fields.values());
+    }
+
+    public int fieldCount() {
+        return fields.size();
+    }
+
+    /**
+     * @param name          The name of the field.
+     * @param nullable      Whether the field may be null, which also holds for the parameter of its builder setter.
+     * @param typeArguments The annotations of the type arguments from the outermost level in, empty if the field is not a
+     *                      list or a map.
+     */
+    public record FieldPlan(String name, boolean nullable, List<TypeArgumentLevel> typeArguments) {
+        public FieldPlan {
+            typeArguments = List.copyOf(typeArguments);
+        }
+
+        /**
+         * @return Whether the field maps to a generic Java type, see {@link AvroNullability#isTemplatedType(Schema)}.
+         */
+        public boolean isTemplated() {
+            return !typeArguments.isEmpty();
+        }
+    }
+
+    /**
+     * One level of type arguments: the element of a list, or the key and value of a map. Map keys are never null.
+     *
+     * @param map      Whether the level is a map, with the value as its second type argument.
+     * @param nullable Whether the element or value may be null.
+     */
+    public record TypeArgumentLevel(boolean map, boolean nullable) {
+    }
+}
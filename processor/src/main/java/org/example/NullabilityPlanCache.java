@@ -0,0 +1,155 @@
+package org.example;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.example.NullabilityPlan.FieldPlan;
+import org.example.NullabilityPlan.TypeArgumentLevel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The {@link NullabilityPlan}s of the schemas the processor has seen, keyed by the 64-bit Rabin fingerprint Avro
+ * defines, of the schema JSON a generated class embeds in its {@code SCHEMA$} literal. A class whose schema is in the
+ * cache is annotated without parsing its schema at all, in this run and, through the cache file, in later ones.
+ * <p>
+ * A plan is compiled from the schema the class is looked up by in the {@link SchemaRegistry} if it has one, or else from
+ * the literal. Both describe the same record as long as the classes were generated from the schema directory, and a
+ * regenerated class with another schema has another fingerprint.
+ * <p>
+ * The cache file is binary: a header with the format and the {@link AvroClassProcessor#PROCESSOR_VERSION}, whose rules
+ * the plans follow, and then the plans, sorted by fingerprint so the same plans always give the same file. A cache file
+ * of another version, or one that cannot be read, is ignored as a whole. The cache is safe to use from several threads.
+ */
+public final class NullabilityPlanCache {
+    private static final int MAGIC = 0x41564e50; // "AVNP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAP_LEVEL = 0b10;
+    private static final int NULLABLE_LEVEL = 0b01;
+
+    private final Map<Long, NullabilityPlan> plans;
+    private volatile boolean changed;
+
+    private NullabilityPlanCache(Map<Long, NullabilityPlan> plans) {
+        this.plans = new ConcurrentHashMap<>(plans);
+    }
+
+    /**
+     * @return A cache without any plan, which is only kept in memory unless it is {@linkplain #save(Path) saved}.
+     */
+    public static NullabilityPlanCache empty() {
+        return new NullabilityPlanCache(Map.of());
+    }
+
+    /**
+     * @param cacheFile The cache file, it does not have to exist.
+     * @return The cached plans, or an empty cache if the file is missing, unreadable or of another version.
+     */
+    public static NullabilityPlanCache load(Path cacheFile) {
+        if (!Files.isRegularFile(cacheFile)) {
+            return empty();
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(cacheFile))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(AvroClassProcessor.PROCESSOR_VERSION)) {
+                return empty();
+            }
+            int planCount = in.readInt();
+            Map<Long, NullabilityPlan> plans = new TreeMap<>();
+            for (int i = 0; i < planCount; i++) {
+                long fingerprint = in.readLong();
+                int fieldCount = in.readInt();
+                List<FieldPlan> fields = new ArrayList<>(fieldCount);
+                for (int j = 0; j < fieldCount; j++) {
+                    String name = in.readUTF();
+                    boolean nullable = in.readBoolean();
+                    int levelCount = in.readUnsignedShort();
+                    List<TypeArgumentLevel> levels = new ArrayList<>(levelCount);
+                    for (int k = 0; k < levelCount; k++) {
+                        int level = in.readUnsignedByte();
+                        levels.add(new TypeArgumentLevel((level & MAP_LEVEL) != 0, (level & NULLABLE_LEVEL) != 0));
+                    }
+                    fields.add(new FieldPlan(name, nullable, levels));
+                }
+                plans.put(fingerprint, new NullabilityPlan(fields));
+            }
+            return new NullabilityPlanCache(plans);
+        } catch (IOException | RuntimeException e) {
+            // A corrupt cache only costs parsing the schemas again
+            return empty();
+        }
+    }
+
+    /**
+     * @param schemaJson The schema JSON of a generated class.
+     * @return The fingerprint the plan of the schema is cached by.
+     */
+    public static long fingerprint(String schemaJson) {
+        return SchemaNormalization.fingerprint64(schemaJson.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param schemaJson The schema JSON of a generated class, as embedded in its {@code SCHEMA$} literal.
+     * @param schema     Supplies the record schema of the class, only called when the plan is not cached yet.
+     * @return The plan of the schema.
+     */
+    public NullabilityPlan get(String schemaJson, Supplier<Schema> schema) {
+        long fingerprint = fingerprint(schemaJson);
+        NullabilityPlan plan = plans.get(fingerprint);
+        if (plan == null) {
+            plan = NullabilityPlan.of(schema.get());
+            if (plans.putIfAbsent(fingerprint, plan) == null) {
+                changed = true;
+            }
+        }
+        return plan;
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    /**
+     * Writes the cache file, replacing the previous one atomically, if any plan was added since the cache was loaded.
+     * Plans of schemas that are gone are kept, they take a few bytes per field.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path cacheFile) throws IOException {
+        if (!changed) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(AvroClassProcessor.PROCESSOR_VERSION);
+            Map<Long, NullabilityPlan> sorted = new TreeMap<>(plans);
+            out.writeInt(sorted.size());
+            for (Map.Entry<Long, NullabilityPlan> entry : sorted.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().fieldCount());
+                for (FieldPlan field : entry.getValue().fields()) {
+                    out.writeUTF(field.name());
+                    out.writeBoolean(field.nullable());
+                    out.writeShort(field.typeArguments().size());
+                    for (TypeArgumentLevel level : field.typeArguments()) {
+                        out.writeByte((level.map() ? MAP_LEVEL : 0) | (level.nullable() ? NULLABLE_LEVEL : 0));
+                    }
+                }
+            }
+        }
+        OutputFiles.writeAtomically(cacheFile, bytes.toByteArray());
+        changed = false;
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+import org.apache.avro.Schema;
+import org.example.NullabilityPlan.TypeArgumentLevel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Velocity tool for the Avro compiler templates in {@code org/example/templates}, which write the nullability
+ * annotations while the classes are generated instead of adding them to the generated sources afterwards.
+ * <p>
+ * Register it through {@code SpecificCompiler.setAdditionalVelocityTools} (or {@code additionalVelocityToolClasses} of
+ * the Gradle plugin), the templates refer to it as {@code $nullabilitytool}. The annotations follow the same
+ * {@link AvroNullability} rules as {@link AvroClassProcessor}.
+ */
+public class NullabilityTool {
+    static final String NOT_NULL = "@org.jetbrains.annotations.NotNull";
+    static final String NULLABLE = "@org.jetbrains.annotations.Nullable";
+    private static final Set<String> PRIMITIVE_TYPES = Set.of("boolean", "byte", "short", "char", "int", "long", "float", "double");
+
+    private final Map<AnnotatedType, String> annotatedTypes = new ConcurrentHashMap<>();
+
+    /**
+     * @return The annotation of a value of the schema: record getters, record setter parameters and builder setter
+     * parameters.
+     */
+    public String annotation(Schema schema) {
+        return AvroNullability.isNullable(schema) ? NULLABLE : NOT_NULL;
+    }
+
+    /**
+     * @return The annotation of a builder getter. Every builder field may still be unset, so only primitives are never
+     * null.
+     */
+    public String builderAnnotation(String javaType) {
+        return PRIMITIVE_TYPES.contains(javaType) ? NOT_NULL : NULLABLE;
+    }
+
+    /**
+     * Annotates the type arguments of a list or map type, for example {@code java.util.List<java.lang.String>} becomes
+     * {@code java.util.List<java.lang.@NotNull String>}. The templates ask for the same field four times, for the getter
+     * and setter of the record and of its builder, so every annotated type is only computed once.
+     *
+     * @param schema   The schema of the value.
+     * @param javaType The Java type the compiler generated for the schema.
+     * @return The Java type with annotated type arguments, or the type itself if it has none.
+     */
+    public String annotateTypeArguments(Schema schema, String javaType) {
+        return annotatedTypes.computeIfAbsent(new AnnotatedType(schema, javaType),
+                type -> annotateTypeArguments(NullabilityPlan.typeArguments(schema), javaType));
+    }
+
+    /**
+     * Splits the type level by level down the element of a list or the value of a map, and then joins it back together
+     * from the innermost level out, annotating each nested type before it becomes a type argument of the level above.
+     */
+    private static String annotateTypeArguments(List<TypeArgumentLevel> levels, String javaType) {
+        List<String> prefixes = new ArrayList<>();
+        List<List<String>> argumentsByLevel = new ArrayList<>();
+        String type = javaType;
+        for (TypeArgumentLevel level : levels) {
+            int argumentsStart = type.indexOf('<');
+            if (argumentsStart < 0 || !type.endsWith(">")) {
+                break;
+            }
+            List<String> arguments = splitTypeArguments(type.substring(argumentsStart + 1, type.length() - 1));
+            prefixes.add(type.substring(0, argumentsStart + 1));
+            argumentsByLevel.add(arguments);
+            if (level.map()) {
+                arguments.set(0, annotate(arguments.get(0), false));
+            }
+            type = arguments.get(level.map() ? 1 : 0);
+        }
+        for (int i = argumentsByLevel.size() - 1; i >= 0; i--) {
+            TypeArgumentLevel level = levels.get(i);
+            List<String> arguments = argumentsByLevel.get(i);
+            arguments.set(level.map() ? 1 : 0, annotate(type, level.nullable()));
+            type = prefixes.get(i) + String.join(",", arguments) + ">";
+        }
+        return type;
+    }
+
+    private static String annotate(String javaType, boolean isNullable) {
+        // A qualified type can only be annotated right before its simple name, as in java.lang.@NotNull String
+        int nameEnd = javaType.indexOf('<') < 0 ? javaType.length() : javaType.indexOf('<');
+        int nameStart = javaType.lastIndexOf('.', nameEnd - 1) + 1;
+        return javaType.substring(0, nameStart) + (isNullable ? NULLABLE : NOT_NULL) + " " + javaType.substring(nameStart);
+    }
+
+    private static List<String> splitTypeArguments(String arguments) {
+        List<String> split = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < arguments.length(); i++) {
+            switch (arguments.charAt(i)) {
+                case '<' -> depth++;
+                case '>' -> depth--;
+                case ',' -> {
+                    if (depth == 0) {
+                        split.add(arguments.substring(start, i).strip());
+                        start = i + 1;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        split.add(arguments.substring(start).strip());
+        return split;
+    }
+
+    private record AnnotatedType(Schema schema, String javaType) {
+    }
+}
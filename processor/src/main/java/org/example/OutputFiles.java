@@ -0,0 +1,106 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Writes processor outputs so that readers never see a partially written file, and leaves files untouched when their
+ * content would not change, keeping their timestamps for the incremental compilation that reads them.
+ */
+public final class OutputFiles {
+
+    private OutputFiles() {
+    }
+
+    /**
+     * Content that is written to a stream, for outputs too large to hold in memory as a whole.
+     */
+    @FunctionalInterface
+    public interface Content {
+        /**
+         * @param out The stream to write the content to, it may be closed once the content is written.
+         * @throws IOException If the content cannot be produced or written.
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes the content to the file, unless the file already holds exactly this content.
+     *
+     * @param file    The file to write, its parent directories are created when missing.
+     * @param content The new content of the file.
+     * @return Whether the file was written.
+     * @throws IOException If the file cannot be read or written.
+     */
+    public static boolean writeIfChanged(Path file, byte[] content) throws IOException {
+        if (Files.isRegularFile(file) && Files.size(file) == content.length && Arrays.equals(Files.readAllBytes(file), content)) {
+            return false;
+        }
+        writeAtomically(file, content);
+        return true;
+    }
+
+    /**
+     * Writes the content to the file like {@link #writeIfChanged(Path, byte[])}, but streams it into a temporary file next
+     * to the target first and compares the two files, so the content is never held in memory.
+     *
+     * @param file    The file to write, its parent directories are created when missing.
+     * @param content Writes the new content of the file.
+     * @return Whether the file was written.
+     * @throws IOException If the content cannot be written or the file cannot be read or replaced.
+     */
+    public static boolean writeIfChanged(Path file, Content content) throws IOException {
+        Path temporaryFile = createTemporaryFile(file);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporaryFile))) {
+                content.writeTo(out);
+            }
+            if (Files.isRegularFile(file) && Files.mismatch(temporaryFile, file) == -1) {
+                return false;
+            }
+            moveIntoPlace(temporaryFile, file);
+            return true;
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Writes the content to a temporary file next to the target and renames it over the target, so that an interrupted
+     * run leaves either the old or the new content behind, never a mix of both.
+     *
+     * @param file    The file to write, its parent directories are created when missing.
+     * @param content The new content of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeAtomically(Path file, byte[] content) throws IOException {
+        Path temporaryFile = createTemporaryFile(file);
+        try {
+            Files.write(temporaryFile, content);
+            moveIntoPlace(temporaryFile, file);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static Path createTemporaryFile(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        return Files.createTempFile(parent, "." + file.getFileName(), ".tmp");
+    }
+
+    private static void moveIntoPlace(Path temporaryFile, Path file) throws IOException {
+        try {
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Still a single rename on the same directory, only without the guarantee of the file system
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Record of a previous processor run: for every generated class, the hash of the source it was given and the hash of
+ * the output it wrote. A file whose hashes still match can be skipped, and an entry whose source is gone points to an
+ * output that should be removed.
+ * <p>
+ * The manifest is a plain text file. The first line holds the fingerprint of the processor that wrote it, a manifest
+ * written by a different processor version or configuration is ignored as a whole. Every other line is
+ * {@code <relative path> <input hash> <output hash>}, sorted by path so the file is stable between runs.
+ */
+public class ProcessingManifest {
+    private static final String FINGERPRINT_PREFIX = "fingerprint ";
+
+    private final String fingerprint;
+    private final Map<String, Entry> entries;
+
+    private ProcessingManifest(String fingerprint, Map<String, Entry> entries) {
+        this.fingerprint = fingerprint;
+        this.entries = entries;
+    }
+
+    public static ProcessingManifest empty(String fingerprint) {
+        return new ProcessingManifest(fingerprint, new TreeMap<>());
+    }
+
+    /**
+     * Loads the manifest from the given file.
+     *
+     * @param manifestFile The manifest file, it does not have to exist.
+     * @param fingerprint  The fingerprint of the current processor version and configuration.
+     * @return The stored manifest, or an empty one if the file is missing or was written with another fingerprint.
+     * @throws IOException If the manifest file exists but cannot be read.
+     */
+    public static ProcessingManifest load(Path manifestFile, String fingerprint) throws IOException {
+        if (!Files.isRegularFile(manifestFile)) {
+            return empty(fingerprint);
+        }
+        List<String> lines = Files.readAllLines(manifestFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(FINGERPRINT_PREFIX + fingerprint)) {
+            return empty(fingerprint);
+        }
+
+        Map<String, Entry> entries = new TreeMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            // Paths may contain spaces, the hashes never do
+            int outputHashStart = line.lastIndexOf(' ');
+            int inputHashStart = line.lastIndexOf(' ', outputHashStart - 1);
+            if (inputHashStart <= 0) {
+                // A corrupt manifest only costs a full run
+                return empty(fingerprint);
+            }
+            String path = line.substring(0, inputHashStart);
+            entries.put(path, new Entry(line.substring(inputHashStart + 1, outputHashStart), line.substring(outputHashStart + 1)));
+        }
+        return new ProcessingManifest(fingerprint, entries);
+    }
+
+    /**
+     * Writes the manifest to the given file, replacing any previous content atomically.
+     */
+    public void save(Path manifestFile) throws IOException {
+        List<String> lines = new ArrayList<>(entries.size() + 1);
+        lines.add(FINGERPRINT_PREFIX + fingerprint);
+        entries.forEach((path, entry) -> lines.add(path + " " + entry.inputHash() + " " + entry.outputHash()));
+
+        // An interrupted run must not leave a truncated manifest behind
+        OutputFiles.writeAtomically(manifestFile, (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Optional<Entry> get(String relativePath) {
+        return Optional.ofNullable(entries.get(relativePath));
+    }
+
+    public void put(String relativePath, Entry entry) {
+        entries.put(relativePath, entry);
+    }
+
+    public void remove(String relativePath) {
+        entries.remove(relativePath);
+    }
+
+    /**
+     * @return The relative paths of all the files in the manifest, in sorted order.
+     */
+    public List<String> paths() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * Hashes of one processed file.
+     *
+     * @param inputHash  Hash of the generated source the processor read.
+     * @param outputHash Hash of the annotated source the processor wrote.
+     */
+    public record Entry(String inputHash, String outputHash) {
+    }
+}
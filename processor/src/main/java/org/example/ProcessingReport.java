@@ -0,0 +1,86 @@
+package org.example;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Outcome of a processor run: how many files were processed, skipped or removed, and which of them failed.
+ * Failures are collected per file so that a single broken class does not hide the state of the others.
+ */
+public class ProcessingReport {
+    private final int processedFiles;
+    private final int upToDateFiles;
+    private final int removedFiles;
+    private final List<FileFailure> failures;
+    private final ProcessingTimings timings;
+
+    public ProcessingReport(int processedFiles, int upToDateFiles, int removedFiles, List<FileFailure> failures) {
+        this(processedFiles, upToDateFiles, removedFiles, failures, ProcessingTimings.empty());
+    }
+
+    public ProcessingReport(int processedFiles, int upToDateFiles, int removedFiles, List<FileFailure> failures, ProcessingTimings timings) {
+        this.processedFiles = processedFiles;
+        this.upToDateFiles = upToDateFiles;
+        this.removedFiles = removedFiles;
+        this.failures = List.copyOf(failures);
+        this.timings = timings;
+    }
+
+    public int getProcessedFiles() {
+        return processedFiles;
+    }
+
+    /**
+     * @return The number of files skipped because the manifest showed their output to be up to date.
+     */
+    public int getUpToDateFiles() {
+        return upToDateFiles;
+    }
+
+    /**
+     * @return The number of outputs removed because their generated source disappeared.
+     */
+    public int getRemovedFiles() {
+        return removedFiles;
+    }
+
+    public List<FileFailure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return The phase timings of the processed files.
+     */
+    public ProcessingTimings getTimings() {
+        return timings;
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Prints a summary line and the summary of the timings, followed by one entry per failed file, including the chain
+     * of causes.
+     */
+    public void print(PrintStream out) {
+        out.println("Processed " + processedFiles + " files, " + upToDateFiles + " up to date, "
+                + removedFiles + " removed, " + failures.size() + " failed");
+        if (!timings.getFiles().isEmpty()) {
+            out.println(timings.summary());
+        }
+        for (FileFailure failure : failures) {
+            out.println("  " + failure.file() + ":");
+            for (Throwable cause = failure.error(); cause != null; cause = cause.getCause()) {
+                out.println("    " + cause);
+            }
+        }
+    }
+
+    /**
+     * A file that could not be processed, with the error that stopped it.
+     */
+    public record FileFailure(Path file, Exception error) {
+    }
+}
@@ -0,0 +1,186 @@
+package org.example;
+
+import org.example.FileTimings.Phase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToLongFunction;
+
+/**
+ * The timings of all the files a processor run annotated, with the totals and percentiles over them, as a one-line
+ * summary or a JSON report.
+ * <p>
+ * Only annotated files are timed, the ones skipped as up to date and the ones that failed are not.
+ */
+public final class ProcessingTimings {
+    private static final int[] PERCENTILES = {50, 90, 99};
+
+    private final List<FileTimings> files;
+    private final long wallNanos;
+
+    /**
+     * @param files     The timings of the annotated files.
+     * @param wallNanos The time the whole run took, including listing the files and the manifest.
+     */
+    public ProcessingTimings(List<FileTimings> files, long wallNanos) {
+        this.files = List.copyOf(files);
+        this.wallNanos = wallNanos;
+    }
+
+    public static ProcessingTimings empty() {
+        return new ProcessingTimings(List.of(), 0);
+    }
+
+    public List<FileTimings> getFiles() {
+        return files;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public double getFilesPerSecond() {
+        return wallNanos == 0 ? 0 : files.size() / (wallNanos / 1e9);
+    }
+
+    /**
+     * @return The slowest files, slowest first.
+     */
+    public List<FileTimings> slowest(int count) {
+        return files.stream()
+                .sorted(Comparator.comparingLong(FileTimings::getTotalNanos).reversed())
+                .limit(count)
+                .toList();
+    }
+
+    /**
+     * @return A line such as {@code Took 2.31 s, 120.4 files/s, per file p50 5.2 ms, p90 11.0 ms, p99 40.3 ms, 81% in
+     * parse, slowest Wide.java 52.7 ms}, empty if no file was timed.
+     */
+    public String summary() {
+        if (files.isEmpty()) {
+            return "";
+        }
+        long[] totals = sorted(FileTimings::getTotalNanos);
+        Phase slowestPhase = Arrays.stream(Phase.values())
+                .max(Comparator.comparingLong(this::totalNanos))
+                .orElseThrow();
+        long allNanos = Arrays.stream(totals).sum();
+        FileTimings slowestFile = slowest(1).get(0);
+        return String.format(Locale.ROOT, "Took %.2f s, %.1f files/s, per file p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, %d%% in %s, slowest %s %.1f ms",
+                wallNanos / 1e9, getFilesPerSecond(), millis(percentile(totals, 50)), millis(percentile(totals, 90)),
+                millis(percentile(totals, 99)), allNanos == 0 ? 0 : Math.round(100.0 * totalNanos(slowestPhase) / allNanos),
+                slowestPhase.jsonName(), slowestFile.getPath(), millis(slowestFile.getTotalNanos()));
+    }
+
+    /**
+     * Writes the report as JSON: the totals of every phase and of the syntax tree counts, the percentiles of the time
+     * per file and per phase, and the timings of the slowest files.
+     *
+     * @param file          The file to write.
+     * @param slowestCount  How many of the slowest files are listed.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeJson(Path file, int slowestCount) throws IOException {
+        OutputFiles.writeAtomically(file, toJson(slowestCount).getBytes(StandardCharsets.UTF_8));
+    }
+
+    String toJson(int slowestCount) {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"files\": ").append(files.size()).append(",\n");
+        json.append("  \"wallMs\": ").append(formatMillis(wallNanos)).append(",\n");
+        json.append(String.format(Locale.ROOT, "  \"filesPerSecond\": %.1f,%n", getFilesPerSecond()));
+
+        json.append("  \"totals\": {\n");
+        for (Phase phase : Phase.values()) {
+            json.append("    \"").append(phase.jsonName()).append("Ms\": ").append(formatMillis(totalNanos(phase))).append(",\n");
+        }
+        json.append("    \"totalMs\": ").append(formatMillis(files.stream().mapToLong(FileTimings::getTotalNanos).sum())).append(",\n");
+        json.append("    \"nodesTouched\": ").append(files.stream().mapToLong(FileTimings::getNodesTouched).sum()).append(",\n");
+        json.append("    \"annotationsAdded\": ").append(files.stream().mapToLong(FileTimings::getAnnotationsAdded).sum()).append("\n");
+        json.append("  },\n");
+
+        json.append("  \"percentiles\": {\n");
+        appendPercentiles(json, "totalMs", sorted(FileTimings::getTotalNanos));
+        for (Phase phase : Phase.values()) {
+            json.append(",\n");
+            appendPercentiles(json, phase.jsonName() + "Ms", sorted(timings -> timings.getNanos(phase)));
+        }
+        json.append("\n  },\n");
+
+        json.append("  \"slowest\": [");
+        List<FileTimings> slowest = slowest(slowestCount);
+        for (int i = 0; i < slowest.size(); i++) {
+            FileTimings timings = slowest.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"path\": ").append(quote(timings.getPath()));
+            json.append(", \"totalMs\": ").append(formatMillis(timings.getTotalNanos()));
+            for (Phase phase : Phase.values()) {
+                json.append(", \"").append(phase.jsonName()).append("Ms\": ").append(formatMillis(timings.getNanos(phase)));
+            }
+            json.append(", \"fieldCount\": ").append(timings.getFieldCount());
+            json.append(", \"nodesTouched\": ").append(timings.getNodesTouched());
+            json.append(", \"annotationsAdded\": ").append(timings.getAnnotationsAdded()).append("}");
+        }
+        json.append(slowest.isEmpty() ? "]\n" : "\n  ]\n");
+        return json.append("}\n").toString();
+    }
+
+    private void appendPercentiles(StringBuilder json, String name, long[] sortedNanos) {
+        json.append("    \"").append(name).append("\": {");
+        for (int percentile : PERCENTILES) {
+            json.append("\"p").append(percentile).append("\": ").append(formatMillis(percentile(sortedNanos, percentile))).append(", ");
+        }
+        json.append("\"max\": ").append(formatMillis(sortedNanos.length == 0 ? 0 : sortedNanos[sortedNanos.length - 1])).append("}");
+    }
+
+    private long totalNanos(Phase phase) {
+        return files.stream().mapToLong(timings -> timings.getNanos(phase)).sum();
+    }
+
+    private long[] sorted(ToLongFunction<FileTimings> nanos) {
+        return files.stream().mapToLong(nanos).sorted().toArray();
+    }
+
+    /**
+     * @return The nearest-rank percentile of the sorted values, {@code 0} if there are none.
+     */
+    private static long percentile(long[] sortedNanos, int percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.length);
+        return sortedNanos[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", millis(nanos));
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,94 @@
+package org.example;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Thin command line client of the {@link ProcessorDaemon}: sends the processor arguments to the daemon listening on
+ * the given socket and prints what the run printed there. When no daemon is listening, the arguments are processed in
+ * this process instead, exactly like {@link AvroClassProcessor#main(String[])} would.
+ */
+public final class ProcessorClient {
+    static final String USAGE = "Usage: ProcessorClient <socket> <generatedJavaDir> [processor options]";
+
+    private ProcessorClient() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        int exitCode = run(Paths.get(args[0]), Arrays.copyOfRange(args, 1, args.length));
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
+    }
+
+    /**
+     * Runs the processor in the daemon listening on the socket, or in this process when there is none.
+     *
+     * @param socket The socket of the daemon.
+     * @param args   The processor arguments, relative paths are relative to the working directory of this process.
+     * @return The exit status of the run, see {@link AvroClassProcessor#run(String...)}.
+     * @throws IOException If the run fails in this process.
+     */
+    public static int run(Path socket, String... args) throws IOException {
+        SocketChannel channel = connect(socket);
+        if (channel == null) {
+            System.out.println("No processor daemon on " + socket + ", processing in this process");
+            return AvroClassProcessor.run(args);
+        }
+        try (channel) {
+            ProcessorDaemon.writeRequest(new DataOutputStream(Channels.newOutputStream(channel)), Paths.get(""), args);
+            return ProcessorDaemon.readResponse(new DataInputStream(Channels.newInputStream(channel)), System.out, System.err);
+        }
+    }
+
+    /**
+     * @return Whether a daemon accepts connections on the socket.
+     */
+    static boolean isListening(Path socket) {
+        SocketChannel channel = connect(socket);
+        if (channel == null) {
+            return false;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Connecting was all that was asked
+        }
+        return true;
+    }
+
+    /**
+     * @return A channel connected to the daemon, or {@code null} if no daemon is listening on the socket.
+     */
+    private static SocketChannel connect(Path socket) {
+        if (!Files.exists(socket)) {
+            return null;
+        }
+        try {
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                channel.connect(UnixDomainSocketAddress.of(socket));
+                return channel;
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            // A stale socket file, or a daemon that is gone
+            return null;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A long-running processor that takes runs from {@link ProcessorClient}s over a Unix domain socket, so that repeated
+ * runs do not start a new JVM and load JavaParser and Avro again every time.
+ * <p>
+ * Between runs the daemon keeps the loaded classes, the JIT-compiled code, the parser of the thread that processes
+ * single-worker runs and the {@link SchemaRegistry} of every schema directory it has seen. A cached registry is reused
+ * as long as none of the {@code .avsc} files of its directory was added, removed or modified.
+ * <p>
+ * Every client is served on its own thread, so a client that connects and sends nothing, or sends its request slowly,
+ * holds up no other. The runs themselves take turns on a single run thread, in the order their requests arrive: a run
+ * sends {@code System.out} and {@code System.err} to its client, and keeps the parser of that thread warm. A request is
+ * the working directory of the client followed by its processor arguments, and the response is the output and error
+ * output of the run followed by its exit status, see {@link #writeRequest} and {@link #readResponse}.
+ */
+public final class ProcessorDaemon {
+    static final String USAGE = "Usage: ProcessorDaemon <socket>";
+
+    private final Path socket;
+    // Only used on the run thread
+    private final Map<Path, CachedSchemas> schemaCache = new HashMap<>();
+    private final ExecutorService runThread = Executors.newSingleThreadExecutor(runnable -> daemonThread(runnable, "processor-daemon-run"));
+
+    ProcessorDaemon(Path socket) {
+        this.socket = socket;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        new ProcessorDaemon(Paths.get(args[0]).toAbsolutePath()).serve();
+    }
+
+    /**
+     * Listens on the socket until the process is stopped or the thread is interrupted, the socket file is removed again
+     * on the way out of the process.
+     *
+     * @throws IOException If the socket cannot be bound, for example because another daemon is listening on it, or
+     *                     accepting a client fails, such as when the thread is interrupted.
+     */
+    void serve() throws IOException {
+        if (Files.exists(socket)) {
+            if (ProcessorClient.isListening(socket)) {
+                throw new IOException("Another processor daemon is already listening on " + socket);
+            }
+            // Left behind by a daemon that did not shut down cleanly
+            Files.delete(socket);
+        }
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socket);
+                } catch (IOException e) {
+                    // Nothing left to report to, the next daemon deletes the stale file
+                }
+            }));
+            System.out.println("Processor daemon listening on " + socket);
+
+            while (true) {
+                SocketChannel client = server.accept();
+                daemonThread(() -> serveClient(client), "processor-daemon-client").start();
+            }
+        } finally {
+            runThread.shutdownNow();
+        }
+    }
+
+    private void serveClient(SocketChannel client) {
+        try (client) {
+            handle(client);
+        } catch (EOFException e) {
+            // A client that connected without sending a run, such as another daemon checking the socket
+        } catch (IOException e) {
+            // A client that went away only loses its own run
+            System.err.println("Processor daemon request failed: " + e);
+        }
+    }
+
+    private void handle(SocketChannel client) throws IOException {
+        DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+        Path workingDir = Paths.get(in.readUTF());
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode;
+        try {
+            exitCode = runThread.submit(() -> run(args, workingDir, new PrintStream(out, true, StandardCharsets.UTF_8),
+                    new PrintStream(err, true, StandardCharsets.UTF_8))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the run");
+        } catch (RejectedExecutionException e) {
+            throw new IOException("The processor daemon is shutting down", e);
+        } catch (ExecutionException e) {
+            // The run reports its exceptions to the client itself, only an error gets here
+            throw new IOException("The run failed", e.getCause());
+        }
+
+        DataOutputStream response = new DataOutputStream(Channels.newOutputStream(client));
+        writeBytes(response, out.toByteArray());
+        writeBytes(response, err.toByteArray());
+        response.writeInt(exitCode);
+        response.flush();
+    }
+
+    /**
+     * Runs the processor like {@link AvroClassProcessor#run(String...)}, with the output of the run, including the
+     * progress the processor prints from its worker threads, going to the given streams instead of the daemon's own.
+     */
+    private int run(String[] args, Path workingDir, PrintStream out, PrintStream err) {
+        PrintStream systemOut = System.out;
+        PrintStream systemErr = System.err;
+        System.setOut(out);
+        System.setErr(err);
+        try {
+            ProcessorOptions options = ProcessorOptions.parse(args, workingDir);
+            if (options.isWatch()) {
+                // A watching run never ends, it would hold up the runs of every other client
+                err.println("--watch is not supported by the processor daemon, run the processor itself instead");
+                return 1;
+            }
+            ProcessingReport report = AvroClassProcessor.process(options, schemasFor(options));
+            report.print(report.hasFailures() ? err : out);
+            return report.hasFailures() ? 1 : 0;
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            // The daemon outlives a failed run, the client gets the error instead of a dropped connection
+            e.printStackTrace(err);
+            return 1;
+        } finally {
+            System.setOut(systemOut);
+            System.setErr(systemErr);
+        }
+    }
+
+    private SchemaRegistry schemasFor(ProcessorOptions options) throws IOException {
+        if (options.getSchemaDir().isEmpty()) {
+            return SchemaRegistry.empty();
+        }
+        Path schemaDir = options.getSchemaDir().get().toAbsolutePath().normalize();
+        String stamp = stampOf(schemaDir);
+        CachedSchemas cached = schemaCache.get(schemaDir);
+        if (cached == null || !cached.stamp().equals(stamp)) {
+            cached = new CachedSchemas(stamp, SchemaRegistry.load(schemaDir));
+            schemaCache.put(schemaDir, cached);
+        }
+        return cached.schemas();
+    }
+
+    /**
+     * @return The path, size and modification time of every schema file in the directory, which change whenever a
+     * schema file is added, removed or written.
+     */
+    private static String stampOf(Path schemaDir) throws IOException {
+        try (Stream<Path> paths = Files.walk(schemaDir)) {
+            return paths.filter(path -> path.toString().endsWith(".avsc"))
+                    .sorted()
+                    .map(path -> {
+                        try {
+                            return path + " " + Files.size(path) + " " + Files.getLastModifiedTime(path).toMillis();
+                        } catch (IOException e) {
+                            return path + " unreadable";
+                        }
+                    })
+                    .collect(Collectors.joining("\n"));
+        }
+    }
+
+    private record CachedSchemas(String stamp, SchemaRegistry schemas) {
+    }
+
+    private static Thread daemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        // The daemon stops with its process, whatever its clients are doing
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Sends a run to the daemon.
+     */
+    static void writeRequest(DataOutputStream out, Path workingDir, String[] args) throws IOException {
+        out.writeUTF(workingDir.toAbsolutePath().toString());
+        out.writeInt(args.length);
+        for (String arg : args) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the result of a run from the daemon, copying its output to the given streams.
+     *
+     * @return The exit status of the run.
+     */
+    static int readResponse(DataInputStream in, PrintStream out, PrintStream err) throws IOException {
+        out.write(readBytes(in));
+        out.flush();
+        err.write(readBytes(in));
+        err.flush();
+        return in.readInt();
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
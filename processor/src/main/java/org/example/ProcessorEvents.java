@@ -0,0 +1,126 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Java Flight Recorder events of the processor, so that a recording shows which file the processor spent its time
+ * on, and in which phase, next to the GC pauses and file IO of the same run. The events are recorded whenever a
+ * recording is running in the processor's JVM, such as one started with {@code -XX:StartFlightRecording}.
+ * <p>
+ * Every event is begun before its phase, filled in and committed after it. Committing an event no recording asked
+ * for costs next to nothing.
+ */
+final class ProcessorEvents {
+    private static final String CATEGORY = "Avro Class Processor";
+
+    private ProcessorEvents() {
+    }
+
+    @Name("org.example.ProcessFile")
+    @Label("Process File")
+    @Description("A generated class annotated from reading it to writing the output")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class ProcessFile extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Field Count")
+        @Description("Fields of the record schema, 0 for enums and compiled classes")
+        int fieldCount;
+
+        @Label("Input Size")
+        @DataAmount
+        long inputBytes;
+
+        @Label("Output Size")
+        @DataAmount
+        long outputBytes;
+    }
+
+    @Name("org.example.ParseSource")
+    @Label("Parse Source")
+    @Description("A generated class parsed by JavaParser")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class ParseSource extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Source Size")
+        @Description("Characters of the source")
+        long chars;
+    }
+
+    @Name("org.example.ParseSchema")
+    @Label("Parse Schema")
+    @Description("An Avro schema parsed from a schema file or from the SCHEMA$ literal of a generated class")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class ParseSchema extends Event {
+        @Label("Source")
+        @Description("The schema file, or the class whose SCHEMA$ literal was parsed")
+        String source;
+
+        @Label("Field Count")
+        int fieldCount;
+
+        @Label("Schema Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("org.example.Annotate")
+    @Label("Annotate")
+    @Description("The annotation pass over a parsed generated class")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Annotate extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Field Count")
+        int fieldCount;
+
+        @Label("Annotations Added")
+        int annotationsAdded;
+    }
+
+    @Name("org.example.PrintSource")
+    @Label("Print Source")
+    @Description("An annotated class printed back to source")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class PrintSource extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Source Size")
+        @Description("Characters of the printed source")
+        long chars;
+    }
+
+    @Name("org.example.WriteOutput")
+    @Label("Write Output")
+    @Description("An annotated output written, or compared with the existing file and left alone")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class WriteOutput extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Output Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Written")
+        @Description("False when the existing file already held the output")
+        boolean written;
+    }
+}
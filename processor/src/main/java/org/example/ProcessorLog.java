@@ -0,0 +1,72 @@
+package org.example;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Leveled progress messages of a processor run. Errors and warnings go to the standard error stream, the rest to the
+ * standard output stream. The streams are looked up for every message, so a caller that redirects them, such as the
+ * {@link ProcessorDaemon}, receives the messages of its run.
+ */
+public final class ProcessorLog {
+    private final Level level;
+
+    /**
+     * The levels of the messages, from the fewest to the most messages.
+     */
+    public enum Level {
+        ERROR,
+        WARN,
+        INFO,
+        DEBUG;
+
+        /**
+         * @throws IllegalArgumentException If the name is none of {@code error}, {@code warn}, {@code info} or {@code debug}.
+         */
+        static Level parse(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("--log-level expects error, warn, info or debug, got " + name, e);
+            }
+        }
+    }
+
+    /**
+     * @param level The most detailed level that is printed.
+     */
+    public ProcessorLog(Level level) {
+        this.level = level;
+    }
+
+    public boolean isEnabled(Level messageLevel) {
+        return messageLevel.compareTo(level) <= 0;
+    }
+
+    public void error(String message) {
+        log(Level.ERROR, () -> message);
+    }
+
+    public void warn(String message) {
+        log(Level.WARN, () -> message);
+    }
+
+    public void info(String message) {
+        log(Level.INFO, () -> message);
+    }
+
+    /**
+     * Logs a debug message, which is only built when debug messages are printed.
+     */
+    public void debug(Supplier<String> message) {
+        log(Level.DEBUG, message);
+    }
+
+    private void log(Level messageLevel, Supplier<String> message) {
+        if (isEnabled(messageLevel)) {
+            PrintStream out = messageLevel.compareTo(Level.WARN) <= 0 ? System.err : System.out;
+            out.println(message.get());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package org.example;
+
+import org.example.AvroClassProcessor.OutputMode;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Command line options of {@link AvroClassProcessor}.
+ */
+public class ProcessorOptions {
+    static final String USAGE = "Usage: AvroClassProcessor <generatedJavaDir> [--output <dir>] [--manifest <file> | --no-manifest]"
+            + " [--files-from <file>] [--changed-schemas <file>] [--workers <count>] [--schema-dir <dir>]"
+            + " [--output-mode reprint|patch] [--classes] [--log-level error|warn|info|debug] [--report <file>]"
+            + " [--slowest <count>] [--plan-cache <file>] [--watch] [--memory-budget <megabytes>] [--no-stamp]"
+            + " [--shared-cache <dir>] [--shared-cache-size <megabytes>]";
+    static final String DEFAULT_MANIFEST_NAME = ".avro-class-processor-manifest";
+    static final String DEFAULT_PLAN_CACHE_NAME = ".avro-class-processor-plans";
+
+    private Path generatedClassesDir;
+    private Path outputDir;
+    private Path manifestFile;
+    private boolean manifestEnabled = true;
+    private Path filesFrom;
+    private Path changedSchemas;
+    private int workers = 1;
+    private Path schemaDir;
+    private OutputMode outputMode = OutputMode.REPRINT;
+    private boolean classFiles;
+    private ProcessorLog.Level logLevel = ProcessorLog.Level.INFO;
+    private Path reportFile;
+    private int slowestCount = 10;
+    private Path planCacheFile;
+    private boolean watch;
+    // Half of the heap leaves the other half to the manifest, the caches and the garbage of the files in flight
+    private long memoryBudgetBytes = Runtime.getRuntime().maxMemory() / 2;
+    private boolean stampEnabled = true;
+    private Path sharedCacheDir;
+    private long sharedCacheBytes = 1024L * 1024 * 1024;
+
+    private ProcessorOptions() {
+    }
+
+    /**
+     * Parses the command line arguments of the processor.
+     *
+     * @param args The arguments, the generated classes directory followed by any options.
+     * @return The parsed options.
+     * @throws IllegalArgumentException If the arguments are missing or malformed.
+     */
+    public static ProcessorOptions parse(String[] args) {
+        return parse(args, Paths.get(""));
+    }
+
+    /**
+     * Parses the command line arguments of the processor, given by a process with another working directory, such as
+     * the client of the {@link ProcessorDaemon}.
+     *
+     * @param args       The arguments, the generated classes directory followed by any options.
+     * @param workingDir The directory relative paths in the arguments are resolved against.
+     * @return The parsed options.
+     * @throws IllegalArgumentException If the arguments are missing or malformed.
+     */
+    public static ProcessorOptions parse(String[] args, Path workingDir) {
+        ProcessorOptions options = new ProcessorOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--output" -> options.outputDir = workingDir.resolve(valueOf(args, ++i, arg));
+                case "--manifest" -> options.manifestFile = workingDir.resolve(valueOf(args, ++i, arg));
+                case "--no-manifest" -> options.manifestEnabled = false;
+                case "--files-from" -> options.filesFrom = workingDir.resolve(valueOf(args, ++i, arg));
+                case "--changed-schemas" -> options.changedSchemas = workingDir.resolve(valueOf(args, ++i, arg));
+                case "--workers" -> options.workers = parseWorkers(valueOf(args, ++i, arg));
+                case "--schema-dir" -> options.schemaDir = workingDir.resolve(valueOf(args, ++i, arg));
+                case "--output-mode" -> options.outputMode = parseOutputMode(valueOf(args, ++i, arg));
+                case "--classes" -> options.classFiles = true;
+                case "--log-level" -> options.logLevel = ProcessorLog.Level.parse(valueOf(args, ++i, arg));
+                case "--report" -> options.reportFile = workingDir.resolve(valueOf(args, ++i, arg));
+                case "--slowest" -> options.slowestCount = parseSlowestCount(valueOf(args, ++i, arg));
+                case "--plan-cache" -> options.planCacheFile = workingDir.resolve(valueOf(args, ++i, arg));
+                case "--watch" -> options.watch = true;
+                case "--memory-budget" -> options.memoryBudgetBytes = parseMegabytes(valueOf(args, ++i, arg), arg);
+                case "--no-stamp" -> options.stampEnabled = false;
+                case "--shared-cache" -> options.sharedCacheDir = workingDir.resolve(valueOf(args, ++i, arg));
+                case "--shared-cache-size" -> options.sharedCacheBytes = parseMegabytes(valueOf(args, ++i, arg), arg);
+                default -> {
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + arg + "\n" + USAGE);
+                    } else if (options.generatedClassesDir == null) {
+                        options.generatedClassesDir = workingDir.resolve(arg);
+                    } else {
+                        throw new IllegalArgumentException("Unexpected argument " + arg + "\n" + USAGE);
+                    }
+                }
+            }
+        }
+        if (options.generatedClassesDir == null) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        if (options.watch && options.filesFrom != null) {
+            throw new IllegalArgumentException("--watch processes every changed file, it cannot be combined with --files-from");
+        }
+        if (options.changedSchemas != null && (options.schemaDir == null || options.classFiles || options.watch)) {
+            throw new IllegalArgumentException("--changed-schemas picks the generated sources of a --schema-dir,"
+                    + " it cannot be combined with --classes or --watch");
+        }
+        if (options.changedSchemas != null && options.filesFrom != null) {
+            // The files that changed are all there is to process, the schemas could only add unchanged ones
+            throw new IllegalArgumentException("--changed-schemas picks the files to process itself,"
+                    + " it cannot be combined with --files-from");
+        }
+        if (options.outputDir == null) {
+            options.outputDir = options.generatedClassesDir;
+        }
+        if (options.manifestFile == null) {
+            options.manifestFile = options.outputDir.resolve(DEFAULT_MANIFEST_NAME);
+        }
+        // A jar is processed without a manifest, whose default place would be inside the output jar
+        if (options.planCacheFile == null && options.manifestEnabled && !options.classFiles && !options.isJar()) {
+            options.planCacheFile = options.manifestFile.resolveSibling(DEFAULT_PLAN_CACHE_NAME);
+        }
+        if (options.sharedCacheDir != null && options.classFiles) {
+            // A builder class is annotated with the help of its record class, so a class file alone does not identify its output
+            throw new IllegalArgumentException("--shared-cache only holds annotated sources, it cannot be combined with --classes");
+        }
+        if (options.watch && options.isJar()) {
+            throw new IllegalArgumentException("--watch needs a directory of generated classes, not a jar");
+        }
+        return options;
+    }
+
+    private static String valueOf(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option + "\n" + USAGE);
+        }
+        return args[index];
+    }
+
+    private static int parseWorkers(String value) {
+        try {
+            int workers = Integer.parseInt(value);
+            if (workers < 0) {
+                throw new IllegalArgumentException("--workers must not be negative, got " + value);
+            }
+            // 0 means one worker per available processor
+            return workers == 0 ? Runtime.getRuntime().availableProcessors() : workers;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--workers expects a number, got " + value, e);
+        }
+    }
+
+    private static int parseSlowestCount(String value) {
+        try {
+            int count = Integer.parseInt(value);
+            if (count < 0) {
+                throw new IllegalArgumentException("--slowest must not be negative, got " + value);
+            }
+            return count;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--slowest expects a number, got " + value, e);
+        }
+    }
+
+    private static long parseMegabytes(String value, String option) {
+        try {
+            long megabytes = Long.parseLong(value);
+            if (megabytes <= 0) {
+                throw new IllegalArgumentException(option + " must be positive, got " + value);
+            }
+            return megabytes * 1024 * 1024;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects a number of megabytes, got " + value, e);
+        }
+    }
+
+    private static OutputMode parseOutputMode(String value) {
+        return switch (value) {
+            case "reprint" -> OutputMode.REPRINT;
+            case "patch" -> OutputMode.PATCH;
+            default -> throw new IllegalArgumentException("--output-mode expects reprint or patch, got " + value);
+        };
+    }
+
+    public Path getGeneratedClassesDir() {
+        return generatedClassesDir;
+    }
+
+    /**
+     * @return The directory the annotated classes are written to, the generated classes directory itself by default.
+     */
+    public Path getOutputDir() {
+        return outputDir;
+    }
+
+    public boolean isInPlace() {
+        return outputDir.toAbsolutePath().normalize().equals(generatedClassesDir.toAbsolutePath().normalize());
+    }
+
+    public Path getManifestFile() {
+        return manifestFile;
+    }
+
+    /**
+     * @return Whether a manifest is read and written. Without one every given file is processed, which suits callers
+     * that track changes themselves, such as the Gradle task.
+     */
+    public boolean isManifestEnabled() {
+        return manifestEnabled;
+    }
+
+    /**
+     * @return A file listing the paths to process, one per line and relative to the generated classes directory.
+     * When empty, the whole generated classes directory is processed.
+     */
+    public Optional<Path> getFilesFrom() {
+        return Optional.ofNullable(filesFrom);
+    }
+
+    /**
+     * @return A file listing the changed schema files, one per line and relative to the schema directory. Only the
+     * generated sources of the types a {@link SchemaDependencyGraph} finds affected by them are processed, instead of the
+     * whole generated classes directory. When empty, no sources are picked by their schemas.
+     */
+    public Optional<Path> getChangedSchemas() {
+        return Optional.ofNullable(changedSchemas);
+    }
+
+    /**
+     * @return Whether the whole generated classes directory is processed, rather than only the given files.
+     */
+    public boolean isWholeDirectory() {
+        return filesFrom == null && changedSchemas == null;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * @return A directory of the {@code .avsc} files the classes were generated from. When empty, the schema of every
+     * class is parsed from its {@code SCHEMA$} literal.
+     */
+    public Optional<Path> getSchemaDir() {
+        return Optional.ofNullable(schemaDir);
+    }
+
+    public OutputMode getOutputMode() {
+        return outputMode;
+    }
+
+    /**
+     * @return Whether the input holds the compiled classes of the generated sources, as a directory of {@code .class}
+     * files or as a jar, instead of the sources themselves.
+     */
+    public boolean isClassFiles() {
+        return classFiles;
+    }
+
+    /**
+     * @return Whether the input is a jar, of compiled classes with {@link #isClassFiles()} or else of sources, which is
+     * annotated as a whole into the output jar.
+     */
+    public boolean isJar() {
+        return Files.isRegularFile(generatedClassesDir);
+    }
+
+    /**
+     * @return The most detailed level of the progress messages that is printed.
+     */
+    public ProcessorLog.Level getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * @return A file the JSON report of the phase timings is written to. When empty, only the one-line summary of the
+     * timings is printed.
+     */
+    public Optional<Path> getReportFile() {
+        return Optional.ofNullable(reportFile);
+    }
+
+    /**
+     * @return How many of the slowest files the JSON report lists.
+     */
+    public int getSlowestCount() {
+        return slowestCount;
+    }
+
+    /**
+     * @return The file the {@link NullabilityPlan}s of the schemas are cached in between runs. Defaults to
+     * {@code .avro-class-processor-plans} next to the manifest, and is empty without a manifest unless it is given.
+     */
+    public Optional<Path> getPlanCacheFile() {
+        return Optional.ofNullable(planCacheFile);
+    }
+
+    /**
+     * @return Whether the processor keeps running after the first run and processes the generated files again as they
+     * change, see {@link ProcessorWatcher}.
+     */
+    public boolean isWatch() {
+        return watch;
+    }
+
+    /**
+     * @return The heap the files processed at the same time may take together, as estimated by {@link MemoryBudget}.
+     * Defaults to half of the maximum heap.
+     */
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    /**
+     * @return Whether every annotated source starts with a {@link SourceStamp}, which lets later runs skip it by its
+     * first line. Class files are never stamped.
+     */
+    public boolean isStamped() {
+        return stampEnabled && !classFiles;
+    }
+
+    /**
+     * @return The directory of the {@link SharedOutputCache}, which holds annotated sources for every project on the
+     * machine. When empty, no shared cache is used.
+     */
+    public Optional<Path> getSharedCacheDir() {
+        return Optional.ofNullable(sharedCacheDir);
+    }
+
+    /**
+     * @return The size the entries of the shared cache may take before the least recently used are evicted, 1 GB by
+     * default.
+     */
+    public long getSharedCacheBytes() {
+        return sharedCacheBytes;
+    }
+
+    /**
+     * @return Identifies everything that affects the processor output, outputs recorded under another fingerprint
+     * cannot be reused.
+     */
+    public String getOutputFingerprint() {
+        String mode = classFiles ? "classes" : outputMode.name().toLowerCase(Locale.ROOT);
+        return AvroClassProcessor.PROCESSOR_VERSION + "-" + mode + (classFiles || stampEnabled ? "" : "-unstamped");
+    }
+}
@@ -0,0 +1,243 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps processing the generated classes directory while the Avro compiler regenerates it, for {@code --watch}.
+ * <p>
+ * The first run processes the whole directory, like a run without {@code --watch}. Then the directory is watched for
+ * changes, and every burst of changes is processed as soon as the directory stayed quiet for {@link #DEBOUNCE_MILLIS},
+ * so a regeneration that rewrites many files is processed in one run. Only the files that changed are read again, and
+ * the outputs of deleted sources are removed.
+ * <p>
+ * Between runs the watcher keeps the manifest, the {@link NullabilityPlanCache}, the {@link SchemaRegistry} and the
+ * worker threads with their parsers, and saves the manifest and the plan cache after every run. The schema directory,
+ * if any, is watched too, and its schemas are loaded again when an {@code .avsc} file changes.
+ * <p>
+ * A processor that writes in place changes the files it watches. The manifest recognizes those files as up to date, so
+ * the runs they trigger neither parse them nor print anything.
+ * <p>
+ * A burst that fails, such as one whose files disappear while they are listed or whose manifest cannot be written, is
+ * reported and the watcher goes on. Its changes may be lost, so the next burst processes the whole directory.
+ */
+public final class ProcessorWatcher {
+    /**
+     * How long the watched directories must stay quiet before the changes are processed.
+     */
+    static final long DEBOUNCE_MILLIS = 100;
+
+    private final ProcessorOptions options;
+    private final ProcessorLog log;
+    private final WatchService watchService;
+    private final Map<WatchKey, WatchedDir> watchedDirs = new HashMap<>();
+    private final ProcessingManifest manifest;
+    private final NullabilityPlanCache plans;
+    private final Optional<ForkJoinPool> pool;
+    private final String extension;
+    private SchemaRegistry schemas;
+    private boolean lastBurstFailed;
+
+    private ProcessorWatcher(ProcessorOptions options, WatchService watchService, Optional<ForkJoinPool> pool) throws IOException {
+        this.options = options;
+        this.log = new ProcessorLog(options.getLogLevel());
+        this.watchService = watchService;
+        this.manifest = AvroClassProcessor.loadManifest(options);
+        this.plans = AvroClassProcessor.loadPlanCache(options);
+        this.pool = pool;
+        this.extension = options.isClassFiles() ? ".class" : ".java";
+        this.schemas = loadSchemas();
+    }
+
+    /**
+     * Processes the generated classes directory, and then every change to it until the thread is interrupted.
+     *
+     * @param options The processor options, with {@link ProcessorOptions#isWatch()}.
+     * @return {@code 0} once the thread is interrupted, failed runs are reported and the watcher goes on.
+     * @throws IOException If a directory cannot be watched, or the first run fails to list the directory or to read or
+     *                     write the manifest or the plan cache.
+     */
+    public static int watch(ProcessorOptions options) throws IOException {
+        Optional<ForkJoinPool> pool = options.getWorkers() <= 1
+                ? Optional.empty()
+                : Optional.of(new ForkJoinPool(options.getWorkers()));
+        try (WatchService watchService = options.getGeneratedClassesDir().getFileSystem().newWatchService()) {
+            ProcessorWatcher watcher = new ProcessorWatcher(options, watchService, pool);
+            // Watch before the first run, so no change made while it runs is missed
+            watcher.register(options.getGeneratedClassesDir(), false);
+            if (options.getSchemaDir().isPresent()) {
+                watcher.register(options.getSchemaDir().get(), true);
+            }
+            watcher.processAll(System.nanoTime());
+            watcher.log.info("Watching " + options.getGeneratedClassesDir() + " for changes");
+            watcher.watchChanges();
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            pool.ifPresent(ForkJoinPool::shutdown);
+        }
+    }
+
+    private void watchChanges() throws InterruptedException {
+        while (true) {
+            WatchKey key = watchService.take();
+            // The latency of a run is measured from the first change, so it includes the debouncing
+            long start = System.nanoTime();
+            Changes changes = new Changes();
+            if (lastBurstFailed) {
+                changes.rescan = true;
+                changes.schemasChanged = options.getSchemaDir().isPresent();
+            }
+            try {
+                while (key != null) {
+                    collect(key, changes);
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                process(changes, start);
+                lastBurstFailed = false;
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to process the changes to " + options.getGeneratedClassesDir()
+                        + ", the next change processes the whole directory: " + e);
+                lastBurstFailed = true;
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Changes changes) throws IOException {
+        try {
+            collectEvents(key, changes);
+        } finally {
+            // A key that is not reset gets no more events, even when the burst failed
+            if (!key.reset()) {
+                // The directory is gone
+                watchedDirs.remove(key);
+            }
+        }
+    }
+
+    private void collectEvents(WatchKey key, Changes changes) throws IOException {
+        WatchedDir watched = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (watched == null) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, only listing the directories again finds every change
+                changes.rescan = true;
+                changes.schemasChanged |= watched.schemas();
+                continue;
+            }
+            Path path = watched.dir().resolve((Path) event.context());
+            if (watched.schemas()) {
+                changes.schemasChanged |= path.toString().endsWith(".avsc") || Files.isDirectory(path);
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                    register(path, true);
+                }
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                // Files may have been written to the new directory before it was watched
+                register(path, false);
+                changes.files.addAll(listFiles(path));
+            } else if (path.toString().endsWith(extension)) {
+                changes.files.add(path);
+            }
+        }
+    }
+
+    private void process(Changes changes, long start) throws IOException {
+        if (changes.schemasChanged) {
+            schemas = loadSchemas();
+            log.info("Loaded the schemas of " + options.getSchemaDir().orElseThrow() + " again");
+        }
+        if (changes.rescan) {
+            processAll(start);
+            return;
+        }
+        List<Path> javaFiles = new ArrayList<>();
+        List<String> removedPaths = new ArrayList<>();
+        for (Path file : changes.files) {
+            if (Files.isRegularFile(file)) {
+                javaFiles.add(file);
+            } else {
+                removedPaths.add(AvroClassProcessor.relativePath(options, file));
+            }
+        }
+        if (!javaFiles.isEmpty() || !removedPaths.isEmpty()) {
+            run(javaFiles, removedPaths, start);
+        }
+    }
+
+    private void processAll(long start) throws IOException {
+        List<Path> javaFiles = AvroClassProcessor.listJavaFiles(options, schemas, log);
+        run(javaFiles, AvroClassProcessor.removedPaths(options, manifest, javaFiles), start);
+    }
+
+    private void run(List<Path> javaFiles, List<String> removedPaths, long start) throws IOException {
+        ProcessingReport report = AvroClassProcessor.processFiles(options, schemas, plans, manifest, log, pool,
+                javaFiles, removedPaths, start);
+        if (report.getProcessedFiles() == 0 && report.getRemovedFiles() == 0 && !report.hasFailures()) {
+            log.debug(() -> javaFiles.size() + " changed files are up to date");
+            return;
+        }
+        report.print(report.hasFailures() ? System.err : System.out);
+        if (options.getReportFile().isPresent()) {
+            report.getTimings().writeJson(options.getReportFile().get(), options.getSlowestCount());
+        }
+    }
+
+    private SchemaRegistry loadSchemas() throws IOException {
+        return options.getSchemaDir().isPresent()
+                ? SchemaRegistry.load(options.getSchemaDir().get())
+                : SchemaRegistry.empty();
+    }
+
+    /**
+     * Watches the directory and all the directories below it.
+     */
+    private void register(Path root, boolean schemaDir) throws IOException {
+        List<Path> dirs;
+        try (Stream<Path> paths = Files.walk(root)) {
+            dirs = paths.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        for (Path dir : dirs) {
+            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirs.put(key, new WatchedDir(dir, schemaDir));
+        }
+    }
+
+    private List<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(path -> path.toString().endsWith(extension)).collect(Collectors.toList());
+        }
+    }
+
+    private record WatchedDir(Path dir, boolean schemas) {
+    }
+
+    /**
+     * The changes of one burst, the same file changing several times is processed once.
+     */
+    private static final class Changes {
+        private final Set<Path> files = new TreeSet<>();
+        private boolean schemasChanged;
+        private boolean rescan;
+    }
+}
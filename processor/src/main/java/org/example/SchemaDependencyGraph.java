@@ -0,0 +1,94 @@
+package org.example;
+
+import org.apache.avro.Schema;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Which named types of a schema directory refer to which others, to find the generated classes a change to some
+ * schema files affects.
+ * <p>
+ * A record that has a field of another named type, directly or as the element, value or branch of a list, map or union,
+ * depends on that type, and so does every record that depends on the record in turn. The Avro compiler embeds the
+ * schemas of all these types in the {@code SCHEMA$} literal of the record, so a change to {@code DomainClass.avsc}
+ * changes the classes generated for {@code DomainClass} and for {@code DomainClassWrapper}, but none of the others.
+ */
+public final class SchemaDependencyGraph {
+    private final SchemaRegistry schemas;
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+
+    private SchemaDependencyGraph(SchemaRegistry schemas) {
+        this.schemas = schemas;
+    }
+
+    /**
+     * @param schemas The types of a schema directory.
+     * @return The graph of the references between the types.
+     */
+    public static SchemaDependencyGraph of(SchemaRegistry schemas) {
+        SchemaDependencyGraph graph = new SchemaDependencyGraph(schemas);
+        for (Schema type : schemas.types().values()) {
+            if (type.getType() == Schema.Type.RECORD) {
+                for (Schema.Field field : type.getFields()) {
+                    graph.addReferences(type.getFullName(), field.schema());
+                }
+            }
+        }
+        return graph;
+    }
+
+    private void addReferences(String dependent, Schema schema) {
+        switch (schema.getType()) {
+            // A named type is a node of its own, its fields are references of that type rather than of the dependent
+            case RECORD, ENUM, FIXED -> dependents.computeIfAbsent(schema.getFullName(), name -> new TreeSet<>()).add(dependent);
+            case ARRAY -> addReferences(dependent, schema.getElementType());
+            case MAP -> addReferences(dependent, schema.getValueType());
+            case UNION -> schema.getTypes().forEach(type -> addReferences(dependent, type));
+            default -> {
+                // Primitive types refer to nothing
+            }
+        }
+    }
+
+    /**
+     * @param changedSchemaFiles The paths of the changed schema files, relative to the schema directory with {@code /}
+     *                           separators. A path that defines no type, such as that of a removed file, affects no type
+     *                           either: the classes generated from it are gone, and no other type can still refer to them.
+     * @return The full names of the types the files define and of all the types that depend on those, sorted.
+     */
+    public Set<String> affectedTypes(Collection<String> changedSchemaFiles) {
+        Set<String> affected = new TreeSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        for (String type : schemas.types().keySet()) {
+            if (schemas.schemaFile(type).filter(changedSchemaFiles::contains).isPresent()) {
+                pending.add(type);
+            }
+        }
+        while (!pending.isEmpty()) {
+            String type = pending.poll();
+            if (affected.add(type)) {
+                pending.addAll(dependents.getOrDefault(type, Set.of()));
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * @param changedSchemaFiles The paths of the changed schema files, see {@link #affectedTypes(Collection)}.
+     * @return The paths of the Java sources generated for the affected types, relative to the generated classes directory
+     * with {@code /} separators, sorted.
+     */
+    public Set<String> affectedSources(Collection<String> changedSchemaFiles) {
+        Set<String> sources = new TreeSet<>();
+        for (String type : affectedTypes(changedSchemaFiles)) {
+            sources.add(type.replace('.', '/') + ".java");
+        }
+        return sources;
+    }
+}
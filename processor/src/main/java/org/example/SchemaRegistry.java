@@ -0,0 +1,160 @@
+package org.example;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The named Avro types (records, enums and fixed) defined by a directory of {@code .avsc} files, looked up by full name.
+ * <p>
+ * Every file is parsed once, by a parser that already knows the types of the files parsed before it, so a type such as
+ * {@code DomainClass} is parsed a single time no matter how many other schemas embed it. This replaces parsing the
+ * {@code SCHEMA$} literal of every generated class, which repeats the embedded types in full.
+ */
+public final class SchemaRegistry {
+    private static final SchemaRegistry EMPTY = new SchemaRegistry(Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<String, Schema> types;
+    private final Map<String, String> schemaFiles;
+
+    private SchemaRegistry(Map<String, Schema> types, Map<String, String> schemaFiles) {
+        this.types = types;
+        this.schemaFiles = schemaFiles;
+    }
+
+    /**
+     * @return A registry without any type, every lookup falls back to the schema embedded in the generated class.
+     */
+    public static SchemaRegistry empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Parses all the {@code .avsc} files under the given directory.
+     * <p>
+     * A file may refer to types defined in another file. Files are parsed in path order, and a file that refers to a type
+     * that is not known yet is retried once more types are known. Files that still cannot be parsed are left out, the
+     * classes generated from them fall back to their {@code SCHEMA$} literal.
+     *
+     * @param schemaDir The directory holding the schema files.
+     * @return The registry of all the named types defined in the directory.
+     * @throws IOException If the directory cannot be listed or a schema file cannot be read.
+     */
+    public static SchemaRegistry load(Path schemaDir) throws IOException {
+        List<Path> pending;
+        try (Stream<Path> paths = Files.walk(schemaDir)) {
+            pending = paths.filter(path -> path.toString().endsWith(".avsc"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        Map<String, Schema> types = new HashMap<>();
+        Map<String, String> schemaFiles = new HashMap<>();
+        Schema.Parser parser = new Schema.Parser();
+        while (!pending.isEmpty()) {
+            List<Path> unresolved = new ArrayList<>();
+            for (Path schemaFile : pending) {
+                try {
+                    ProcessorEvents.ParseSchema event = new ProcessorEvents.ParseSchema();
+                    event.begin();
+                    Schema schema = parser.parse(schemaFile.toFile());
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.source = schemaFile.toString();
+                        event.fieldCount = schema.getType() == Schema.Type.RECORD ? schema.getFields().size() : 0;
+                        event.bytes = Files.size(schemaFile);
+                        event.commit();
+                    }
+                    String schemaFilePath = schemaDir.relativize(schemaFile).toString().replace(File.separatorChar, '/');
+                    collectNamedTypes(schema, types, schemaFilePath, schemaFiles);
+                } catch (AvroRuntimeException e) {
+                    // Besides a type that is not known yet, a broken file, such as one with a default that does not fit its field
+                    unresolved.add(schemaFile);
+                    // A failed parse may leave a half-defined type behind, continue with a parser that knows only complete ones
+                    parser = new Schema.Parser().addTypes(types);
+                }
+            }
+            if (unresolved.size() == pending.size()) {
+                // No progress, the remaining files are broken rather than waiting for another file
+                break;
+            }
+            pending = unresolved;
+        }
+        return new SchemaRegistry(types, schemaFiles);
+    }
+
+    /**
+     * Registers the named types of a schema that are not known yet, as defined by the given schema file.
+     */
+    private static void collectNamedTypes(Schema schema, Map<String, Schema> types, String schemaFile, Map<String, String> schemaFiles) {
+        switch (schema.getType()) {
+            case RECORD -> {
+                if (types.putIfAbsent(schema.getFullName(), schema) == null) {
+                    schemaFiles.put(schema.getFullName(), schemaFile);
+                    schema.getFields().forEach(field -> collectNamedTypes(field.schema(), types, schemaFile, schemaFiles));
+                }
+            }
+            case ENUM, FIXED -> {
+                if (types.putIfAbsent(schema.getFullName(), schema) == null) {
+                    schemaFiles.put(schema.getFullName(), schemaFile);
+                }
+            }
+            case ARRAY -> collectNamedTypes(schema.getElementType(), types, schemaFile, schemaFiles);
+            case MAP -> collectNamedTypes(schema.getValueType(), types, schemaFile, schemaFiles);
+            case UNION -> schema.getTypes().forEach(type -> collectNamedTypes(type, types, schemaFile, schemaFiles));
+            default -> {
+                // Primitive types have no name to register
+            }
+        }
+    }
+
+    /**
+     * @param fullName The full name of the type, which is also the fully qualified name of the generated class.
+     * @return The schema of the type, or empty if no schema file defines it.
+     */
+    public Optional<Schema> get(String fullName) {
+        return Optional.ofNullable(types.get(fullName));
+    }
+
+    /**
+     * @param fullName The full name of the type.
+     * @return The Avro parsing fingerprint of the type as the schema directory defines it, or empty if no schema file
+     * defines it.
+     */
+    public Optional<Long> fingerprint(String fullName) {
+        return get(fullName).map(SchemaNormalization::parsingFingerprint64);
+    }
+
+    public int size() {
+        return types.size();
+    }
+
+    /**
+     * @return All the named types, by full name.
+     */
+    Map<String, Schema> types() {
+        return Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * @param fullName The full name of the type.
+     * @return The path of the schema file that defines the type, relative to the schema directory with {@code /}
+     * separators, or empty if no schema file defines it.
+     */
+    Optional<String> schemaFile(String fullName) {
+        return Optional.ofNullable(schemaFiles.get(fullName));
+    }
+}
@@ -0,0 +1,195 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Annotated sources shared by every project on the machine, for {@code --shared-cache}. Projects that generate the
+ * same schemas, such as common envelope types, get the same generated sources, and only the first of them annotates
+ * them.
+ * <p>
+ * Every entry is the annotated output of one generated source, stored under the hash of the source, the
+ * {@linkplain ProcessorOptions#getOutputFingerprint() output fingerprint} of the processor and, for a class the schema
+ * directory defines, the fingerprint of that schema. A class is annotated by the schema of the schema directory rather
+ * than the one it embeds, and a schema directory that is out of step with the generated sources must not hand its
+ * output to a project whose schema directory is not. Entries live in
+ * {@code <cache dir>/<first two digits of the key>/<key>}.
+ * <p>
+ * The cache is safe to use from several processes at once, such as the daemons of several builds. An entry is written
+ * to a temporary file and renamed into place, so it is read either whole or not at all, and two processes storing the
+ * same entry store the same bytes. Reading an entry touches its modification time, and the entries least recently used
+ * are evicted once the cache grows beyond its size, by one process at a time under a file lock. A process that finds
+ * an entry gone in between simply annotates the source again.
+ * <p>
+ * The cache only saves work, so an entry that cannot be read or written is reported at debug level and skipped. A
+ * failed eviction is reported as a warning, since the cache would grow beyond its size from then on.
+ */
+final class SharedOutputCache {
+    private static final String LOCK_FILE_NAME = ".lock";
+    // Left behind by a process that died while it stored an entry
+    private static final Duration STALE_TEMPORARY_FILE_AGE = Duration.ofHours(1);
+
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final String fingerprint;
+    private final ProcessorLog log;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    /**
+     * @param cacheDir    The cache directory, created when missing.
+     * @param maxBytes    The size the entries may take together before the least recently used are evicted.
+     * @param fingerprint The output fingerprint of the run, part of the key of every entry.
+     */
+    SharedOutputCache(Path cacheDir, long maxBytes, String fingerprint, ProcessorLog log) {
+        this.cacheDir = cacheDir;
+        this.maxBytes = maxBytes;
+        this.fingerprint = fingerprint;
+        this.log = log;
+    }
+
+    /**
+     * @param inputHash         The {@link ContentHash} of the generated source.
+     * @param schemaFingerprint The {@linkplain SchemaRegistry#fingerprint(String) fingerprint} of the schema the schema
+     *                          directory defines for the class, or empty if it defines none.
+     * @return The annotated output of the source, or empty if no project on the machine stored it yet.
+     */
+    Optional<byte[]> get(String inputHash, Optional<Long> schemaFingerprint) {
+        Path entry = entryFile(inputHash, schemaFingerprint);
+        try {
+            byte[] output = Files.readAllBytes(entry);
+            // Marks the entry as recently used, so it is evicted last
+            Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+            hits.incrementAndGet();
+            return Optional.of(output);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.debug(() -> "Failed to read " + entry + " from the shared cache: " + e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the annotated output of a source, for the next project that annotates the same source.
+     *
+     * @param inputHash         The {@link ContentHash} of the generated source.
+     * @param schemaFingerprint The fingerprint of the schema the schema directory defines for the class, see
+     *                          {@link #get(String, Optional)}.
+     * @param output            The annotated output.
+     */
+    void put(String inputHash, Optional<Long> schemaFingerprint, byte[] output) {
+        Path entry = entryFile(inputHash, schemaFingerprint);
+        try {
+            OutputFiles.writeAtomically(entry, output);
+            storedBytes.addAndGet(output.length);
+        } catch (IOException e) {
+            log.debug(() -> "Failed to store " + entry + " in the shared cache: " + e);
+        }
+    }
+
+    /**
+     * @return The number of outputs found in the cache so far.
+     */
+    int hits() {
+        return hits.get();
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache fits into its size again, if this run stored any entry. A
+     * process that finds another one evicting leaves it to that one.
+     */
+    void evict() {
+        if (storedBytes.get() == 0 || !Files.isDirectory(cacheDir)) {
+            return;
+        }
+        try (FileChannel lockChannel = FileChannel.open(cacheDir.resolve(LOCK_FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.tryLock()) {
+            if (lock == null) {
+                return;
+            }
+            evictLeastRecentlyUsed();
+        } catch (OverlappingFileLockException e) {
+            // Another run of the same process, such as the daemon serving two builds, is evicting
+        } catch (IOException | UncheckedIOException e) {
+            // Unlike a missed entry, this keeps the cache from shrinking, on every later run too
+            log.warn("Failed to evict entries of the shared cache " + cacheDir + ": " + e);
+        }
+    }
+
+    private void evictLeastRecentlyUsed() throws IOException {
+        Instant staleBefore = Instant.now().minus(STALE_TEMPORARY_FILE_AGE);
+        List<CachedFile> entries = new ArrayList<>();
+        long totalBytes = 0;
+        try (Stream<Path> paths = Files.walk(cacheDir, 2)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (path.equals(cacheDir) || path.getParent().equals(cacheDir)) {
+                    // The cache directory itself, which may be named like a temporary file, the lock file and the
+                    // directories of the entries
+                    continue;
+                }
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (path.getFileName().toString().startsWith(".")) {
+                    if (attributes.lastModifiedTime().toInstant().isBefore(staleBefore)) {
+                        Files.deleteIfExists(path);
+                    }
+                } else if (attributes.isRegularFile()) {
+                    entries.add(new CachedFile(path, attributes.size(), attributes.lastModifiedTime()));
+                    totalBytes += attributes.size();
+                }
+            }
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        entries.sort(Comparator.comparing(CachedFile::lastUsed));
+        int evicted = 0;
+        for (CachedFile entry : entries) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(entry.path());
+                totalBytes -= entry.bytes();
+                evicted++;
+            } catch (IOException e) {
+                // Another process may be reading it where open files cannot be deleted, it goes next time
+            }
+        }
+        int evictedEntries = evicted;
+        log.debug(() -> "Evicted " + evictedEntries + " least recently used entries from the shared cache " + cacheDir);
+    }
+
+    private Path entryFile(String inputHash, Optional<Long> schemaFingerprint) {
+        String keyContent = fingerprint + "\n" + inputHash + schemaFingerprint.map(schema -> "\n" + Long.toHexString(schema)).orElse("");
+        String key = ContentHash.of(keyContent.getBytes(StandardCharsets.UTF_8));
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private record CachedFile(Path path, long bytes, FileTime lastUsed) {
+    }
+}
@@ -0,0 +1,208 @@
+package org.example;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes the changes made to a parsed compilation unit back into its original source as text insertions, instead of
+ * printing the whole tree again.
+ * <p>
+ * Nodes added by the processor have no source range, while the nodes they were attached to keep the range they were
+ * parsed from. Every new annotation, import and {@code @deprecated} javadoc tag is therefore turned into an insertion at
+ * the position of its parent, and everything the processor did not touch, including the formatting of the generated
+ * code, is copied unchanged. The same source and the same changes always give the same bytes.
+ */
+public final class SourcePatcher {
+    private static final String DEPRECATED_TAG = "deprecated";
+
+    private final String source;
+    private final String lineSeparator;
+    private final int[] lineStarts;
+    private final List<Insertion> insertions = new ArrayList<>();
+
+    private SourcePatcher(String source) {
+        this.source = source;
+        this.lineSeparator = source.contains("\r\n") ? "\r\n" : "\n";
+        this.lineStarts = lineStarts(source);
+    }
+
+    /**
+     * @param source The source the compilation unit was parsed from.
+     * @param cu     The compilation unit, after the processor added its annotations.
+     * @return The source with the added annotations, imports and javadoc tags inserted.
+     */
+    public static String patch(String source, CompilationUnit cu) {
+        SourcePatcher patcher = new SourcePatcher(source);
+        patcher.addImports(cu);
+        for (AnnotationExpr annotation : cu.findAll(AnnotationExpr.class, annotation -> annotation.getRange().isEmpty())) {
+            annotation.getParentNode().ifPresent(annotated -> patcher.addAnnotation(annotated, annotation));
+        }
+        for (ConstructorDeclaration constructor : cu.findAll(ConstructorDeclaration.class)) {
+            patcher.addDeprecatedTag(constructor);
+        }
+        return patcher.apply();
+    }
+
+    private void addImports(CompilationUnit cu) {
+        Node anchor = null;
+        List<ImportDeclaration> newImports = new ArrayList<>();
+        for (ImportDeclaration importDeclaration : cu.getImports()) {
+            if (isFromSource(importDeclaration)) {
+                anchor = importDeclaration;
+            } else {
+                newImports.add(importDeclaration);
+            }
+        }
+        if (anchor == null) {
+            anchor = cu.getPackageDeclaration().orElse(null);
+        }
+
+        for (ImportDeclaration newImport : newImports) {
+            String declaration = newImport.toString().strip();
+            if (anchor == null) {
+                insert(0, declaration + lineSeparator);
+            } else {
+                insert(offsetAfter(anchor.getEnd().get()), lineSeparator + declaration);
+            }
+        }
+    }
+
+    /**
+     * JavaParser adds an import by parsing it on its own, so a new import does have a range, just not one that points at
+     * its own text in this source.
+     */
+    private boolean isFromSource(ImportDeclaration importDeclaration) {
+        if (importDeclaration.getRange().isEmpty()) {
+            return false;
+        }
+        int begin = offsetOf(importDeclaration.getBegin().get());
+        int end = offsetAfter(importDeclaration.getEnd().get());
+        return end <= source.length()
+                && source.substring(begin, end).replaceAll("\\s+", "").equals(importDeclaration.toString().replaceAll("\\s+", ""));
+    }
+
+    private void addAnnotation(Node annotated, AnnotationExpr annotation) {
+        if (annotated.getRange().isEmpty()) {
+            // Attached to a node that is new itself, it is written together with that node
+            return;
+        }
+        if (annotated instanceof BodyDeclaration) {
+            // Members get the annotation on its own line, like the annotations the Avro compiler writes
+            int offset = offsetOf(annotated.getBegin().get());
+            insert(offset, annotation + lineSeparator + indentationOf(offset));
+        } else if (annotated instanceof ClassOrInterfaceType type) {
+            // A qualified type can only be annotated right before its simple name, as in java.lang.@NotNull String
+            insert(offsetOf(type.getName().getBegin().get()), annotation + " ");
+        } else {
+            insert(offsetOf(annotated.getBegin().get()), annotation + " ");
+        }
+    }
+
+    private void addDeprecatedTag(ConstructorDeclaration constructor) {
+        Comment comment = constructor.getComment().orElse(null);
+        if (comment == null || comment.getRange().isPresent() || constructor.getRange().isEmpty()) {
+            // The javadoc was not replaced by the processor
+            return;
+        }
+        String tag = constructor.getJavadoc().get().getBlockTags().stream()
+                .filter(blockTag -> blockTag.getTagName().equals(DEPRECATED_TAG))
+                .reduce((first, second) -> second)
+                .map(blockTag -> "@" + DEPRECATED_TAG + " " + blockTag.getContent().toText())
+                .orElse(null);
+        if (tag == null) {
+            return;
+        }
+
+        int declarationStart = offsetOf(constructor.getBegin().get());
+        int commentEnd = skipWhitespaceBackwards(declarationStart);
+        if (commentEnd >= 2 && source.startsWith("*/", commentEnd - 2)) {
+            int closeOffset = commentEnd - 2;
+            int lineStart = source.lastIndexOf('\n', closeOffset - 1) + 1;
+            if (source.substring(lineStart, closeOffset).isBlank()) {
+                // The comment ends on a line of its own, add the tag as a line right above it
+                insert(lineStart, source.substring(lineStart, closeOffset) + "* " + tag + lineSeparator);
+            } else {
+                String indentation = indentationOf(lineStart);
+                insert(closeOffset, lineSeparator + indentation + " * " + tag + lineSeparator + indentation + " ");
+            }
+        } else {
+            // The constructor had no javadoc at all
+            String indentation = indentationOf(declarationStart);
+            insert(declarationStart, "/**" + lineSeparator + indentation + " * " + tag + lineSeparator
+                    + indentation + " */" + lineSeparator + indentation);
+        }
+    }
+
+    private void insert(int offset, String text) {
+        insertions.add(new Insertion(offset, insertions.size(), text));
+    }
+
+    private String apply() {
+        if (insertions.isEmpty()) {
+            return source;
+        }
+        insertions.sort(Comparator.comparingInt(Insertion::offset).thenComparingInt(Insertion::order));
+        int length = source.length() + insertions.stream().mapToInt(insertion -> insertion.text().length()).sum();
+        StringBuilder patched = new StringBuilder(length);
+        int copied = 0;
+        for (Insertion insertion : insertions) {
+            patched.append(source, copied, insertion.offset()).append(insertion.text());
+            copied = insertion.offset();
+        }
+        return patched.append(source, copied, source.length()).toString();
+    }
+
+    private int offsetOf(Position position) {
+        // Lines and columns are 1-based, and every character counts as one column
+        return lineStarts[position.line - 1] + position.column - 1;
+    }
+
+    private int offsetAfter(Position end) {
+        return offsetOf(end) + 1;
+    }
+
+    private int skipWhitespaceBackwards(int offset) {
+        while (offset > 0 && Character.isWhitespace(source.charAt(offset - 1))) {
+            offset--;
+        }
+        return offset;
+    }
+
+    /**
+     * @return The whitespace the line holding the given offset starts with.
+     */
+    private String indentationOf(int offset) {
+        int lineStart = source.lastIndexOf('\n', offset - 1) + 1;
+        int indentationEnd = lineStart;
+        while (indentationEnd < source.length() && (source.charAt(indentationEnd) == ' ' || source.charAt(indentationEnd) == '\t')) {
+            indentationEnd++;
+        }
+        return source.substring(lineStart, indentationEnd);
+    }
+
+    private static int[] lineStarts(String source) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == source.length() || source.charAt(i + 1) != '\n'))) {
+                starts.add(i + 1);
+            }
+        }
+        return starts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private record Insertion(int offset, int order, String text) {
+    }
+}
@@ -0,0 +1,83 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * The first line of an annotated source, which records what the processor made it from:
+ * {@code // Annotated by avro-class-processor <output fingerprint> from <hash of the generated source>}.
+ * <p>
+ * A later run tells from the first bytes of a file alone whether it is already annotated, without reading and parsing
+ * the whole file. A file processed in place is up to date as long as it starts with a stamp of the current
+ * {@linkplain ProcessorOptions#getOutputFingerprint() output fingerprint}, since the Avro compiler writes every
+ * regenerated source without one. An output written elsewhere is up to date when its stamp also holds the hash of the
+ * generated source as it is now.
+ */
+final class SourceStamp {
+    private static final String PREFIX = "// Annotated by avro-class-processor ";
+    private static final String FROM = " from ";
+    // Longer than any stamp line, the fingerprint is a version and a mode and the hash 64 hex digits
+    private static final int MAX_LINE_BYTES = 512;
+
+    private SourceStamp() {
+    }
+
+    /**
+     * @param fingerprint The output fingerprint of the run.
+     * @param inputHash   The {@link ContentHash} of the generated source.
+     * @param source      The annotated source, the stamp uses its line separator.
+     * @return The source with the stamp as its first line.
+     */
+    static String stamp(String fingerprint, String inputHash, String source) {
+        String lineSeparator = source.contains("\r\n") ? "\r\n" : "\n";
+        return PREFIX + fingerprint + FROM + inputHash + lineSeparator + source;
+    }
+
+    /**
+     * @return The source without the stamp of an earlier run, the source itself if it has none.
+     */
+    static String strip(String source) {
+        if (!source.startsWith(PREFIX)) {
+            return source;
+        }
+        int lineEnd = source.indexOf('\n');
+        return lineEnd < 0 ? "" : source.substring(lineEnd + 1);
+    }
+
+    /**
+     * @param file The file to read the stamp of, it does not have to exist.
+     * @return The stamp the file starts with, or empty if the file is missing or has none.
+     * @throws IOException If the file cannot be read.
+     */
+    static Optional<Stamp> read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        byte[] head;
+        try (InputStream in = Files.newInputStream(file)) {
+            head = in.readNBytes(MAX_LINE_BYTES);
+        }
+        String firstLine = new String(head, StandardCharsets.UTF_8);
+        int lineEnd = firstLine.indexOf('\n');
+        if (!firstLine.startsWith(PREFIX) || lineEnd < 0) {
+            return Optional.empty();
+        }
+        String stamp = firstLine.substring(PREFIX.length(), lineEnd).strip();
+        int from = stamp.indexOf(FROM);
+        if (from < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new Stamp(stamp.substring(0, from), stamp.substring(from + FROM.length())));
+    }
+
+    /**
+     * @param fingerprint The output fingerprint of the run that wrote the file.
+     * @param inputHash   The hash of the generated source the file was annotated from.
+     */
+    record Stamp(String fingerprint, String inputHash) {
+    }
+}
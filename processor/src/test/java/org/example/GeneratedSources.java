@@ -0,0 +1,50 @@
+package org.example;
+
+import org.apache.avro.Schema;
+import org.apache.avro.compiler.specific.SpecificCompiler;
+import org.apache.avro.generic.GenericData;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Generates the Java sources of schemas with the compiler settings the build uses for the test schemas.
+ */
+final class GeneratedSources {
+    /**
+     * A record with required and nullable fields, nested lists and maps, and a record and an enum it refers to.
+     */
+    static final String ORDER_SCHEMA = """
+            {"type": "record", "name": "Order", "namespace": "com.example.orders", "fields": [
+              {"name": "id", "type": "string"},
+              {"name": "note", "type": ["null", "string"], "default": null},
+              {"name": "quantity", "type": "int"},
+              {"name": "discount", "type": ["null", "int"], "default": null},
+              {"name": "tags", "type": {"type": "array", "items": ["null", "string"]}},
+              {"name": "prices", "type": {"type": "map", "values": {"type": "array", "items": "long"}}},
+              {"name": "status", "type": {"type": "enum", "name": "Status", "symbols": ["OPEN", "CLOSED"]}},
+              {"name": "customer", "type": ["null", {"type": "record", "name": "Customer", "fields": [
+                {"name": "name", "type": "string"}
+              ]}], "default": null}
+            ]}""";
+
+    private GeneratedSources() {
+    }
+
+    /**
+     * Generates the classes of the schema and of the named types it defines.
+     *
+     * @return The generated source of the schema's own class.
+     */
+    static Path generate(String schemaJson, Path outputDir) throws IOException {
+        Schema schema = new Schema.Parser().parse(schemaJson);
+        SpecificCompiler compiler = new SpecificCompiler(schema);
+        compiler.setCreateSetters(true);
+        compiler.setFieldVisibility(SpecificCompiler.FieldVisibility.PRIVATE);
+        compiler.setStringType(GenericData.StringType.String);
+        compiler.setEnableDecimalLogicalType(true);
+        compiler.compileToDestination(null, outputDir.toFile());
+        return outputDir.resolve(schema.getFullName().replace('.', File.separatorChar) + ".java");
+    }
+}
@@ -0,0 +1,117 @@
+package org.example;
+
+import org.apache.avro.Schema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NullabilityPlanCacheTest {
+    private static final Schema ORDER = new Schema.Parser().parse(GeneratedSources.ORDER_SCHEMA);
+    private static final String ORDER_JSON = ORDER.toString();
+    private static final Supplier<Schema> NOT_CACHED = () -> {
+        throw new AssertionError("The plan should have been cached");
+    };
+
+    @Test
+    void savedPlansAreLoadedWithoutTheirSchemas(@TempDir Path dir) throws IOException {
+        Path cacheFile = dir.resolve("plans.bin");
+        NullabilityPlanCache cache = NullabilityPlanCache.empty();
+        NullabilityPlan plan = cache.get(ORDER_JSON, () -> ORDER);
+        cache.save(cacheFile);
+
+        NullabilityPlanCache loaded = NullabilityPlanCache.load(cacheFile);
+
+        assertEquals(1, loaded.size());
+        assertEquals(plan.fields(), loaded.get(ORDER_JSON, NOT_CACHED).fields());
+        // The map of arrays of the prices, and the nullable elements of the tags, survive the binary format
+        assertTrue(plan.fields().stream().anyMatch(field -> field.typeArguments().size() == 2));
+        assertTrue(plan.fields().stream().anyMatch(field -> !field.typeArguments().isEmpty() && field.typeArguments().get(0).nullable()));
+    }
+
+    @Test
+    void savingTheSamePlansGivesTheSameFile(@TempDir Path dir) throws IOException {
+        Schema customer = ORDER.getField("customer").schema().getTypes().get(1);
+        NullabilityPlanCache first = NullabilityPlanCache.empty();
+        first.get(ORDER_JSON, () -> ORDER);
+        first.get(customer.toString(), () -> customer);
+        first.save(dir.resolve("first.bin"));
+        NullabilityPlanCache second = NullabilityPlanCache.empty();
+        second.get(customer.toString(), () -> customer);
+        second.get(ORDER_JSON, () -> ORDER);
+        second.save(dir.resolve("second.bin"));
+
+        assertTrue(Arrays.equals(Files.readAllBytes(dir.resolve("first.bin")), Files.readAllBytes(dir.resolve("second.bin"))));
+    }
+
+    @Test
+    void unchangedCacheIsNotWrittenAgain(@TempDir Path dir) throws IOException {
+        Path cacheFile = dir.resolve("plans.bin");
+        NullabilityPlanCache.empty().save(cacheFile);
+        assertFalse(Files.exists(cacheFile));
+
+        NullabilityPlanCache cache = NullabilityPlanCache.empty();
+        cache.get(ORDER_JSON, () -> ORDER);
+        cache.save(cacheFile);
+        Files.delete(cacheFile);
+        cache.get(ORDER_JSON, NOT_CACHED);
+        cache.save(cacheFile);
+
+        assertFalse(Files.exists(cacheFile));
+    }
+
+    @Test
+    void cacheOfAnotherProcessorVersionIsIgnored(@TempDir Path dir) throws IOException {
+        Path cacheFile = dir.resolve("plans.bin");
+        NullabilityPlanCache cache = NullabilityPlanCache.empty();
+        cache.get(ORDER_JSON, () -> ORDER);
+        cache.save(cacheFile);
+        byte[] saved = Files.readAllBytes(cacheFile);
+
+        // The same plans under the header of an earlier processor
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.writeInt(0x41564e50);
+            out.writeInt(1);
+            out.writeUTF(AvroClassProcessor.PROCESSOR_VERSION);
+        }
+        int headerLength = header.size();
+        ByteArrayOutputStream earlier = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(earlier)) {
+            out.writeInt(0x41564e50);
+            out.writeInt(1);
+            out.writeUTF("1");
+            out.write(saved, headerLength, saved.length - headerLength);
+        }
+        Files.write(cacheFile, earlier.toByteArray());
+
+        assertEquals(0, NullabilityPlanCache.load(cacheFile).size());
+    }
+
+    @Test
+    void corruptCacheIsIgnored(@TempDir Path dir) throws IOException {
+        Path cacheFile = dir.resolve("plans.bin");
+        NullabilityPlanCache cache = NullabilityPlanCache.empty();
+        cache.get(ORDER_JSON, () -> ORDER);
+        cache.save(cacheFile);
+        byte[] saved = Files.readAllBytes(cacheFile);
+
+        Files.write(cacheFile, Arrays.copyOf(saved, saved.length - 3));
+        assertEquals(0, NullabilityPlanCache.load(cacheFile).size());
+
+        Files.writeString(cacheFile, "not a plan cache");
+        assertEquals(0, NullabilityPlanCache.load(cacheFile).size());
+
+        assertEquals(0, NullabilityPlanCache.load(dir.resolve("missing.bin")).size());
+    }
+}
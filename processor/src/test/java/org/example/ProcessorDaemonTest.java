@@ -0,0 +1,130 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessorDaemonTest {
+    @TempDir
+    Path dir;
+    private Path socket;
+    private ExecutorService daemon;
+
+    @BeforeEach
+    void startDaemon() throws InterruptedException {
+        socket = dir.resolve("daemon.sock");
+        daemon = Executors.newSingleThreadExecutor();
+        daemon.submit(() -> {
+            new ProcessorDaemon(socket).serve();
+            return null;
+        });
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(10));
+        while (!ProcessorClient.isListening(socket)) {
+            assertTrue(Instant.now().isBefore(deadline), "The daemon did not start listening");
+            Thread.sleep(20);
+        }
+    }
+
+    @AfterEach
+    void stopDaemon() {
+        // Interrupting the accepting thread closes the server socket
+        daemon.shutdownNow();
+    }
+
+    @Test
+    void runIsProcessedInTheDaemon() throws IOException {
+        Path generatedDir = dir.resolve("generated");
+        Path source = GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, generatedDir);
+
+        Response response = send(generatedDir.toString(), "--no-manifest");
+
+        assertEquals(0, response.exitCode(), response.err());
+        assertTrue(response.out().contains("Processed 3 files"), response.out());
+        assertTrue(SourceStamp.read(source).isPresent());
+    }
+
+    @Test
+    void relativePathsAreResolvedAgainstTheWorkingDirectoryOfTheClient() throws IOException {
+        Path source = GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, dir.resolve("generated"));
+
+        Response response = send("generated", "--output", "annotated", "--no-manifest");
+
+        assertEquals(0, response.exitCode(), response.err());
+        assertTrue(Files.isRegularFile(dir.resolve("annotated").resolve(dir.resolve("generated").relativize(source))));
+    }
+
+    @Test
+    void failedRunIsReportedToTheClientAndTheDaemonGoesOn() throws IOException {
+        Response unknownOption = send("generated", "--unknown");
+        assertEquals(1, unknownOption.exitCode());
+        assertTrue(unknownOption.err().contains("--unknown"), unknownOption.err());
+
+        Response watch = send("generated", "--watch");
+        assertEquals(1, watch.exitCode());
+        assertTrue(watch.err().contains("--watch is not supported"), watch.err());
+
+        GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, dir.resolve("generated"));
+        assertEquals(0, send("generated", "--no-manifest").exitCode());
+    }
+
+    @Test
+    void clientThatSendsNothingHoldsUpNoOtherClient() throws IOException {
+        GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, dir.resolve("generated"));
+        try (SocketChannel stalled = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            stalled.connect(UnixDomainSocketAddress.of(socket));
+            // Half a request, the daemon waits for the rest on the thread of this client
+            new DataOutputStream(Channels.newOutputStream(stalled)).writeUTF(dir.toString());
+
+            Response response = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> send("generated", "--no-manifest"));
+            assertEquals(0, response.exitCode(), response.err());
+        }
+    }
+
+    @Test
+    void clientProcessesInItsOwnProcessWithoutADaemon() throws IOException {
+        Path source = GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, dir.resolve("generated"));
+
+        int exitCode = ProcessorClient.run(dir.resolve("no-daemon.sock"), dir.resolve("generated").toString(), "--no-manifest",
+                "--log-level", "warn");
+
+        assertEquals(0, exitCode);
+        assertTrue(SourceStamp.read(source).isPresent());
+    }
+
+    private Response send(String... args) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            ProcessorDaemon.writeRequest(new DataOutputStream(Channels.newOutputStream(channel)), dir, args);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            int exitCode = ProcessorDaemon.readResponse(new DataInputStream(Channels.newInputStream(channel)),
+                    new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+            return new Response(exitCode, out.toString(StandardCharsets.UTF_8), err.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private record Response(int exitCode, String out, String err) {
+    }
+}
@@ -0,0 +1,24 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProcessorOptionsTest {
+    private static final Path WORKING_DIR = Path.of("work");
+
+    @Test
+    void changedSchemasAreNotCombinedWithFilesFrom() {
+        assertThrows(IllegalArgumentException.class, () -> ProcessorOptions.parse(new String[]{"generated",
+                "--schema-dir", "avro", "--changed-schemas", "schemas.txt", "--files-from", "files.txt"}, WORKING_DIR));
+    }
+
+    @Test
+    void changedSchemasNarrowTheWholeDirectory() {
+        assertFalse(ProcessorOptions.parse(new String[]{"generated", "--schema-dir", "avro",
+                "--changed-schemas", "schemas.txt"}, WORKING_DIR).isWholeDirectory());
+    }
+}
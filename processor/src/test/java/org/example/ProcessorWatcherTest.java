@@ -0,0 +1,70 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessorWatcherTest {
+
+    @Test
+    void watcherGoesOnAfterABurstFails(@TempDir Path dir) throws Exception {
+        Path generatedDir = dir.resolve("generated");
+        Path source = GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, generatedDir);
+        String generated = Files.readString(source);
+        Path manifest = dir.resolve("manifest");
+        ProcessorOptions options = ProcessorOptions.parse(new String[]{
+                generatedDir.toString(), "--watch", "--manifest", manifest.toString(), "--log-level", "error"}, dir);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> watcher = executor.submit(() -> ProcessorWatcher.watch(options));
+            awaitTrue(() -> Files.isRegularFile(manifest) && isStamped(source));
+
+            // The manifest cannot be written while a directory is in its place, so the next burst fails
+            Files.delete(manifest);
+            Files.createDirectories(manifest.resolve("in-the-way"));
+            Files.writeString(source, generated);
+            awaitTrue(() -> Files.exists(manifest.resolve("in-the-way")) && isStamped(source));
+            Thread.sleep(3 * ProcessorWatcher.DEBOUNCE_MILLIS);
+
+            Files.delete(manifest.resolve("in-the-way"));
+            Files.delete(manifest);
+            Files.writeString(source, generated);
+            awaitTrue(() -> Files.isRegularFile(manifest) && isStamped(source));
+
+            executor.shutdownNow();
+            assertEquals(0, watcher.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static boolean isStamped(Path source) {
+        try {
+            return SourceStamp.read(source).isPresent();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(10));
+        while (!condition.getAsBoolean()) {
+            assertTrue(Instant.now().isBefore(deadline), "Timed out waiting for the watcher");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SchemaDependencyGraphTest {
+    private SchemaDependencyGraph graph;
+
+    @BeforeEach
+    void loadSchemas(@TempDir Path schemaDir) throws IOException {
+        Files.writeString(schemaDir.resolve("Status.avsc"), """
+                {"type": "enum", "name": "Status", "namespace": "com.example", "symbols": ["ACTIVE", "CLOSED"]}""");
+        Files.writeString(schemaDir.resolve("Money.avsc"), """
+                {"type": "fixed", "name": "Money", "namespace": "com.example", "size": 16}""");
+        Files.writeString(schemaDir.resolve("Customer.avsc"), """
+                {"type": "record", "name": "Customer", "namespace": "com.example", "fields": [
+                  {"name": "status", "type": ["null", "com.example.Status"], "default": null}
+                ]}""");
+        Files.writeString(schemaDir.resolve("Order.avsc"), """
+                {"type": "record", "name": "Order", "namespace": "com.example", "fields": [
+                  {"name": "customer", "type": "com.example.Customer"},
+                  {"name": "lines", "type": {"type": "array", "items": {"type": "record", "name": "OrderLine", "fields": [
+                    {"name": "prices", "type": {"type": "map", "values": "com.example.Money"}}
+                  ]}}}
+                ]}""");
+        Files.writeString(schemaDir.resolve("Audit.avsc"), """
+                {"type": "record", "name": "Audit", "namespace": "com.example", "fields": [
+                  {"name": "orders", "type": {"type": "map", "values": {"type": "array", "items": "com.example.Order"}}}
+                ]}""");
+        Files.writeString(schemaDir.resolve("Unrelated.avsc"), """
+                {"type": "record", "name": "Unrelated", "namespace": "com.example", "fields": [
+                  {"name": "name", "type": "string"}
+                ]}""");
+        graph = SchemaDependencyGraph.of(SchemaRegistry.load(schemaDir));
+    }
+
+    @Test
+    void typeReferredThroughAUnionAffectsItsDependentsTransitively() {
+        assertEquals(Set.of("com.example.Status", "com.example.Customer", "com.example.Order", "com.example.Audit"),
+                graph.affectedTypes(List.of("Status.avsc")));
+    }
+
+    @Test
+    void typeReferredThroughMapsAndArraysAffectsItsDependents() {
+        // Money is a map value of OrderLine, an array element of Order, which is an array element in a map of Audit
+        assertEquals(Set.of("com.example.Money", "com.example.OrderLine", "com.example.Order", "com.example.Audit"),
+                graph.affectedTypes(List.of("Money.avsc")));
+    }
+
+    @Test
+    void changedFileAffectsEveryTypeItDefines() {
+        assertEquals(Set.of("com.example.Order", "com.example.OrderLine", "com.example.Audit"),
+                graph.affectedTypes(List.of("Order.avsc")));
+    }
+
+    @Test
+    void typeNothingRefersToAffectsOnlyItself() {
+        assertEquals(Set.of("com.example.Audit"), graph.affectedTypes(List.of("Audit.avsc")));
+        assertEquals(Set.of("com.example.Unrelated"), graph.affectedTypes(List.of("Unrelated.avsc")));
+    }
+
+    @Test
+    void removedFileAffectsNothing() {
+        assertEquals(Set.of(), graph.affectedTypes(List.of("Removed.avsc")));
+    }
+
+    @Test
+    void affectedSourcesAreTheGeneratedSourcesOfTheAffectedTypes() {
+        assertEquals(List.of("com/example/Audit.java", "com/example/Customer.java", "com/example/Order.java",
+                        "com/example/Unrelated.java"),
+                List.copyOf(graph.affectedSources(List.of("Customer.avsc", "Unrelated.avsc"))));
+    }
+}
@@ -0,0 +1,49 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaRegistryTest {
+
+    @Test
+    void resolvesReferencesToTypesOfLaterFiles(@TempDir Path schemaDir) throws IOException {
+        Files.writeString(schemaDir.resolve("a.avsc"), """
+                {"type": "record", "name": "Order", "namespace": "com.example", "fields": [
+                  {"name": "customer", "type": "com.example.Customer"}
+                ]}""");
+        Files.writeString(schemaDir.resolve("b.avsc"), """
+                {"type": "record", "name": "Customer", "namespace": "com.example", "fields": [
+                  {"name": "name", "type": "string"}
+                ]}""");
+
+        SchemaRegistry schemas = SchemaRegistry.load(schemaDir);
+
+        assertEquals(2, schemas.size());
+        assertEquals("a.avsc", schemas.schemaFile("com.example.Order").orElseThrow());
+        assertEquals("b.avsc", schemas.schemaFile("com.example.Customer").orElseThrow());
+    }
+
+    @Test
+    void leavesOutFilesThatAvroRejects(@TempDir Path schemaDir) throws IOException {
+        Files.writeString(schemaDir.resolve("bad-default.avsc"), """
+                {"type": "record", "name": "BadDefault", "namespace": "com.example", "fields": [
+                  {"name": "count", "type": "int", "default": "none"}
+                ]}""");
+        Files.writeString(schemaDir.resolve("broken.avsc"), "{\"type\": \"record\", \"name\":");
+        Files.writeString(schemaDir.resolve("good.avsc"), """
+                {"type": "enum", "name": "Status", "namespace": "com.example", "symbols": ["ACTIVE"]}""");
+
+        SchemaRegistry schemas = SchemaRegistry.load(schemaDir);
+
+        assertTrue(schemas.get("com.example.Status").isPresent());
+        assertTrue(schemas.get("com.example.BadDefault").isEmpty());
+        assertEquals(1, schemas.size());
+    }
+}
@@ -0,0 +1,174 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedOutputCacheTest {
+    private static final ProcessorLog LOG = new ProcessorLog(ProcessorLog.Level.WARN);
+    private static final byte[] OUTPUT = "annotated".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void storedOutputIsFoundByAnotherProjectOfTheSameProcessor(@TempDir Path cacheDir) {
+        new SharedOutputCache(cacheDir, 1 << 20, "2-reprint", LOG).put("hash", Optional.empty(), OUTPUT);
+
+        SharedOutputCache otherProject = new SharedOutputCache(cacheDir, 1 << 20, "2-reprint", LOG);
+        assertArrayEquals(OUTPUT, otherProject.get("hash", Optional.empty()).orElseThrow());
+        assertEquals(Optional.empty(), otherProject.get("other hash", Optional.empty()));
+        assertEquals(1, otherProject.hits());
+    }
+
+    @Test
+    void outputIsNotFoundUnderAnotherFingerprintOrSchema(@TempDir Path cacheDir) {
+        new SharedOutputCache(cacheDir, 1 << 20, "2-reprint", LOG).put("hash", Optional.of(42L), OUTPUT);
+
+        assertEquals(Optional.empty(), new SharedOutputCache(cacheDir, 1 << 20, "2-patch", LOG).get("hash", Optional.of(42L)));
+        SharedOutputCache cache = new SharedOutputCache(cacheDir, 1 << 20, "2-reprint", LOG);
+        assertEquals(Optional.empty(), cache.get("hash", Optional.of(43L)));
+        assertEquals(Optional.empty(), cache.get("hash", Optional.empty()));
+        assertTrue(cache.get("hash", Optional.of(42L)).isPresent());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted(@TempDir Path cacheDir) throws IOException {
+        SharedOutputCache cache = new SharedOutputCache(cacheDir, 250, "2-reprint", LOG);
+        byte[] output = new byte[100];
+        Instant now = Instant.now();
+        storeUsedAt(cache, cacheDir, "first", output, now.minus(Duration.ofMinutes(30)));
+        storeUsedAt(cache, cacheDir, "second", output, now.minus(Duration.ofMinutes(20)));
+        storeUsedAt(cache, cacheDir, "third", output, now.minus(Duration.ofMinutes(10)));
+        // Reading the oldest entry makes it the most recently used one
+        assertTrue(cache.get("first", Optional.empty()).isPresent());
+
+        cache.evict();
+
+        assertEquals(2, entries(cacheDir).size());
+        assertTrue(cache.get("first", Optional.empty()).isPresent());
+        assertFalse(cache.get("second", Optional.empty()).isPresent());
+        assertTrue(cache.get("third", Optional.empty()).isPresent());
+    }
+
+    @Test
+    void cacheDirectoryNamedLikeATemporaryFileIsEvictedToo(@TempDir Path dir) throws IOException {
+        Path cacheDir = Files.createDirectories(dir.resolve(".avro-class-processor-cache"));
+        SharedOutputCache cache = new SharedOutputCache(cacheDir, 150, "2-reprint", LOG);
+        cache.put("first", Optional.empty(), new byte[100]);
+        cache.put("second", Optional.empty(), new byte[100]);
+        // A cache that has been in use for a while, whose lock file no longer touches the directory
+        Files.createFile(cacheDir.resolve(".lock"));
+        Files.setLastModifiedTime(cacheDir, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+
+        cache.evict();
+
+        assertTrue(Files.isDirectory(cacheDir));
+        assertEquals(1, entries(cacheDir).size());
+    }
+
+    @Test
+    void runThatStoredNothingDoesNotEvict(@TempDir Path cacheDir) throws IOException {
+        SharedOutputCache writer = new SharedOutputCache(cacheDir, 1 << 20, "2-reprint", LOG);
+        writer.put("first", Optional.empty(), new byte[100]);
+        writer.put("second", Optional.empty(), new byte[100]);
+
+        SharedOutputCache reader = new SharedOutputCache(cacheDir, 150, "2-reprint", LOG);
+        reader.get("first", Optional.empty());
+        reader.evict();
+
+        assertEquals(2, entries(cacheDir).size());
+    }
+
+    @Test
+    void evictionIsLeftToTheProcessHoldingTheLock(@TempDir Path cacheDir) throws IOException {
+        SharedOutputCache cache = new SharedOutputCache(cacheDir, 150, "2-reprint", LOG);
+        cache.put("first", Optional.empty(), new byte[100]);
+        cache.put("second", Optional.empty(), new byte[100]);
+
+        try (FileChannel channel = FileChannel.open(cacheDir.resolve(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            cache.evict();
+            assertEquals(2, entries(cacheDir).size());
+        }
+
+        cache.evict();
+        assertEquals(1, entries(cacheDir).size());
+    }
+
+    @Test
+    void temporaryFilesLeftBehindAreRemoved(@TempDir Path cacheDir) throws IOException {
+        SharedOutputCache cache = new SharedOutputCache(cacheDir, 1 << 20, "2-reprint", LOG);
+        cache.put("hash", Optional.empty(), OUTPUT);
+        Path entryDir = entries(cacheDir).iterator().next().getParent();
+        Path stale = Files.writeString(entryDir.resolve(".stale.tmp"), "partial");
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        Path recent = Files.writeString(entryDir.resolve(".recent.tmp"), "partial");
+
+        cache.evict();
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(recent));
+    }
+
+    @Test
+    void projectWithAStaleSchemaDirectoryKeepsItsOutputsToItself(@TempDir Path dir) throws IOException {
+        Path generatedDir = dir.resolve("generated");
+        Path source = GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, generatedDir);
+        // A schema directory where the note of an order is not nullable yet
+        Path staleSchemaDir = Files.createDirectories(dir.resolve("schemas"));
+        Files.writeString(staleSchemaDir.resolve("Order.avsc"), GeneratedSources.ORDER_SCHEMA
+                .replace("{\"name\": \"note\", \"type\": [\"null\", \"string\"], \"default\": null}", "{\"name\": \"note\", \"type\": \"string\"}"));
+        Path cacheDir = dir.resolve("cache");
+
+        AvroClassProcessor.process(ProcessorOptions.parse(new String[]{generatedDir.toString(), "--output", "stale",
+                "--schema-dir", staleSchemaDir.toString(), "--shared-cache", cacheDir.toString(), "--log-level", "warn"}, dir));
+        AvroClassProcessor.process(ProcessorOptions.parse(new String[]{generatedDir.toString(), "--output", "current",
+                "--shared-cache", cacheDir.toString(), "--log-level", "warn"}, dir));
+
+        Path order = generatedDir.relativize(source);
+        String current = Files.readString(dir.resolve("current").resolve(order));
+        assertEquals(AvroClassProcessor.annotateSource(Files.readString(source), SchemaRegistry.empty()).orElseThrow(),
+                SourceStamp.strip(current));
+        assertFalse(Files.readString(dir.resolve("stale").resolve(order)).equals(current));
+    }
+
+    /**
+     * Stores an output and backdates the entry, the modification times of entries written within the same second may
+     * not tell them apart.
+     */
+    private static void storeUsedAt(SharedOutputCache cache, Path cacheDir, String inputHash, byte[] output, Instant lastUsed) throws IOException {
+        Set<Path> before = entries(cacheDir);
+        cache.put(inputHash, Optional.empty(), output);
+        Set<Path> added = new HashSet<>(entries(cacheDir));
+        added.removeAll(before);
+        for (Path entry : added) {
+            Files.setLastModifiedTime(entry, FileTime.from(lastUsed));
+        }
+    }
+
+    private static Set<Path> entries(Path cacheDir) throws IOException {
+        try (Stream<Path> paths = Files.walk(cacheDir)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith("."))
+                    .collect(Collectors.toSet());
+        }
+    }
+}
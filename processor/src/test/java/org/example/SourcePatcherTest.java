@@ -0,0 +1,81 @@
+package org.example;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.nodeTypes.NodeWithAnnotations;
+import com.github.javaparser.ast.nodeTypes.NodeWithSimpleName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourcePatcherTest {
+
+    @Test
+    void patchingAPatchedSourceAgainChangesNothing(@TempDir Path generatedDir) throws IOException {
+        String source = Files.readString(GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, generatedDir));
+
+        String patched = AvroClassProcessor.annotateSource(source, SchemaRegistry.empty(), AvroClassProcessor.OutputMode.PATCH)
+                .orElseThrow();
+        String patchedAgain = AvroClassProcessor.annotateSource(patched, SchemaRegistry.empty(), AvroClassProcessor.OutputMode.PATCH)
+                .orElseThrow();
+
+        assertNotEquals(source, patched);
+        assertEquals(patched, patchedAgain);
+    }
+
+    @Test
+    void patchingAddsTheAnnotationsReprintingAdds(@TempDir Path generatedDir) throws IOException {
+        String source = Files.readString(GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, generatedDir));
+
+        String patched = AvroClassProcessor.annotateSource(source, SchemaRegistry.empty(), AvroClassProcessor.OutputMode.PATCH)
+                .orElseThrow();
+        String reprinted = AvroClassProcessor.annotateSource(source, SchemaRegistry.empty(), AvroClassProcessor.OutputMode.REPRINT)
+                .orElseThrow();
+
+        List<String> reprintedDeclarations = annotatedDeclarations(reprinted);
+        assertTrue(reprintedDeclarations.stream().anyMatch(declaration -> declaration.contains("Nullable ")));
+        assertEquals(reprintedDeclarations, annotatedDeclarations(patched));
+    }
+
+    /**
+     * @return Every annotated declaration and type of the source, with its annotations, in source order.
+     */
+    private static List<String> annotatedDeclarations(String source) {
+        List<String> declarations = new ArrayList<>();
+        StaticJavaParser.parse(source).walk(Node.TreeTraversal.PREORDER, node -> {
+            if (node instanceof NodeWithAnnotations<?> annotated && !annotated.getAnnotations().isEmpty()) {
+                String annotations = annotated.getAnnotations().stream()
+                        .map(annotation -> annotation.getName().getIdentifier())
+                        .sorted()
+                        .collect(Collectors.joining(" "));
+                declarations.add(annotations + " " + signature(node));
+            }
+        });
+        return declarations;
+    }
+
+    private static String signature(Node node) {
+        if (node instanceof CallableDeclaration<?> callable) {
+            return callable.getDeclarationAsString(false, false, false);
+        }
+        if (node instanceof Parameter parameter) {
+            return parameter.getType().asString() + " " + parameter.getNameAsString();
+        }
+        if (node instanceof NodeWithSimpleName<?> named) {
+            return named.getNameAsString();
+        }
+        return node.getClass().getSimpleName() + " " + node.removeComment().toString();
+    }
+}
@@ -0,0 +1,131 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourceStampTest {
+    private static final String SOURCE = "package com.example;\n\npublic class Order {\n}\n";
+
+    @Test
+    void stampIsReadBackFromTheFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("Order.java");
+        Files.writeString(file, SourceStamp.stamp("2-reprint", "abc123", SOURCE));
+
+        assertEquals(Optional.of(new SourceStamp.Stamp("2-reprint", "abc123")), SourceStamp.read(file));
+    }
+
+    @Test
+    void sourceWithoutAStampHasNone(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("Order.java");
+        Files.writeString(file, "// Autogenerated by Avro\n" + SOURCE);
+
+        assertEquals(Optional.empty(), SourceStamp.read(file));
+        assertEquals(Optional.empty(), SourceStamp.read(dir.resolve("Missing.java")));
+    }
+
+    @Test
+    void strippingTheStampGivesTheSourceBack() {
+        assertEquals(SOURCE, SourceStamp.strip(SourceStamp.stamp("2-reprint", "abc123", SOURCE)));
+        assertEquals(SOURCE, SourceStamp.strip(SOURCE));
+    }
+
+    @Test
+    void stampOfACrlfSourceEndsInCrlf(@TempDir Path dir) throws IOException {
+        String crlfSource = SOURCE.replace("\n", "\r\n");
+        String stamped = SourceStamp.stamp("2-reprint", "abc123", crlfSource);
+        Path file = dir.resolve("Order.java");
+        Files.writeString(file, stamped);
+
+        assertTrue(stamped.lines().findFirst().orElseThrow().endsWith("abc123"));
+        assertTrue(stamped.startsWith(stamped.lines().findFirst().orElseThrow() + "\r\n"));
+        assertEquals(crlfSource, SourceStamp.strip(stamped));
+        assertEquals(Optional.of(new SourceStamp.Stamp("2-reprint", "abc123")), SourceStamp.read(file));
+    }
+
+    @Test
+    void inPlaceRunSkipsStampedSourcesAndProcessesRegeneratedOnes(@TempDir Path dir) throws IOException {
+        Path generatedDir = dir.resolve("generated");
+        Path source = GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, generatedDir);
+        String generated = Files.readString(source);
+        // Without a manifest, only the stamps tell which sources are up to date
+        ProcessorOptions options = ProcessorOptions.parse(new String[]{generatedDir.toString(), "--no-manifest", "--log-level", "warn"}, dir);
+
+        assertEquals(3, AvroClassProcessor.process(options).getProcessedFiles());
+        String annotated = Files.readString(source);
+        assertTrue(SourceStamp.read(source).isPresent());
+
+        ProcessingReport rerun = AvroClassProcessor.process(options);
+        assertEquals(0, rerun.getProcessedFiles());
+        assertEquals(3, rerun.getUpToDateFiles());
+
+        // The Avro compiler writes a regenerated source without a stamp
+        Files.writeString(source, generated);
+        ProcessingReport regenerated = AvroClassProcessor.process(options);
+        assertEquals(1, regenerated.getProcessedFiles());
+        assertEquals(annotated, Files.readString(source));
+    }
+
+    @Test
+    void inPlaceRunAnnotatesASourceStampedByAnotherVersionAgain(@TempDir Path dir) throws IOException {
+        Path generatedDir = dir.resolve("generated");
+        Path source = GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, generatedDir);
+        ProcessorOptions options = ProcessorOptions.parse(new String[]{generatedDir.toString(), "--no-manifest", "--log-level", "warn"}, dir);
+        AvroClassProcessor.process(options);
+        String annotated = Files.readString(source);
+
+        Files.writeString(source, SourceStamp.stamp("1-reprint", "abc123", SourceStamp.strip(annotated)));
+
+        assertEquals(1, AvroClassProcessor.process(options).getProcessedFiles());
+        // Under a single stamp of the current version, the body annotated as before
+        assertEquals(options.getOutputFingerprint(), SourceStamp.read(source).orElseThrow().fingerprint());
+        assertEquals(SourceStamp.strip(annotated), SourceStamp.strip(Files.readString(source)));
+    }
+
+    @Test
+    void outputIsUpToDateWhileItsStampHoldsTheHashOfTheGeneratedSource(@TempDir Path dir) throws IOException {
+        Path generatedDir = dir.resolve("generated");
+        Path outputDir = dir.resolve("annotated");
+        Path source = GeneratedSources.generate(GeneratedSources.ORDER_SCHEMA, generatedDir);
+        ProcessorOptions options = ProcessorOptions.parse(new String[]{
+                generatedDir.toString(), "--output", outputDir.toString(), "--no-manifest", "--log-level", "warn"}, dir);
+
+        assertEquals(3, AvroClassProcessor.process(options).getProcessedFiles());
+        Path output = outputDir.resolve(generatedDir.relativize(source));
+        assertEquals(ContentHash.of(Files.readAllBytes(source)), SourceStamp.read(output).orElseThrow().inputHash());
+
+        ProcessingReport rerun = AvroClassProcessor.process(options);
+        assertEquals(0, rerun.getProcessedFiles());
+        assertEquals(3, rerun.getUpToDateFiles());
+
+        // The generated sources are never stamped, a changed one only shows by its hash
+        Files.writeString(source, Files.readString(source) + "\n// Regenerated\n");
+        ProcessingReport regenerated = AvroClassProcessor.process(options);
+        assertEquals(1, regenerated.getProcessedFiles());
+        assertEquals(ContentHash.of(Files.readAllBytes(source)), SourceStamp.read(output).orElseThrow().inputHash());
+        assertEquals(List.of(), sourcesWithStamps(generatedDir));
+    }
+
+    private static List<Path> sourcesWithStamps(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> {
+                        try {
+                            return SourceStamp.read(file).isPresent();
+                        } catch (IOException e) {
+                            throw new AssertionError(e);
+                        }
+                    })
+                    .toList();
+        }
+    }
+}
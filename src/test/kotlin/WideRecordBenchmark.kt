@@ -0,0 +1,149 @@
+import com.github.javaparser.JavaParser
+import com.github.javaparser.ast.CompilationUnit
+import com.github.javaparser.ast.body.MethodDeclaration
+import com.github.javaparser.ast.body.TypeDeclaration
+import org.apache.avro.Schema
+import org.apache.avro.SchemaBuilder
+import org.apache.avro.compiler.specific.SpecificCompiler
+import org.apache.avro.generic.GenericData
+import org.example.AvroClassProcessor
+import org.example.ClassFileAnnotator
+import org.example.MethodIndex
+import org.example.SchemaRegistry
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.io.File
+import java.util.Optional
+import javax.tools.ToolProvider
+
+/**
+ * Benchmarks the annotation pass on a wide record, the shape that made per-field rescanning of the AST expensive.
+ * Run with `./gradlew benchmark`; these tests are excluded from the regular test task. They only print their timings,
+ * [WideRecordTest] checks that the compared ways give the same results.
+ */
+@Tag("benchmark")
+class WideRecordBenchmark {
+
+    companion object {
+        private const val FIELD_COUNT = 300
+
+        // Rescanning takes seconds per pass on a record this wide, so keep the iteration counts small
+        private const val WARMUP_ITERATIONS = 1
+        private const val MEASURED_ITERATIONS = 3
+
+        /**
+         * Creates a record with [fieldCount] fields, cycling through plain, nullable, list and map fields.
+         */
+        fun wideRecordSchema(fieldCount: Int): Schema {
+            val fields = SchemaBuilder.record("WideRecord").namespace("com.example.benchmark").fields()
+            repeat(fieldCount) { i ->
+                when (i % 4) {
+                    0 -> fields.name("field$i").type().stringType().noDefault()
+                    1 -> fields.name("field$i").type().optional().intType()
+                    2 -> fields.name("field$i").type().array().items().nullable().stringType().noDefault()
+                    else -> fields.name("field$i").type().map().values().longType().noDefault()
+                }
+            }
+            return fields.endRecord()
+        }
+
+        /**
+         * Generates the Java class of [schema] with the same compiler settings the build uses for the test schemas.
+         */
+        fun generateSource(schema: Schema, outputDir: File): File {
+            val compiler = SpecificCompiler(schema)
+            compiler.setCreateSetters(true)
+            compiler.setFieldVisibility(SpecificCompiler.FieldVisibility.PRIVATE)
+            compiler.setStringType(GenericData.StringType.String)
+            compiler.setEnableDecimalLogicalType(true)
+            compiler.compileToDestination(null, outputDir)
+            return File(outputDir, schema.fullName.replace('.', '/') + ".java")
+        }
+
+        private fun measureNanos(action: () -> Unit): Long {
+            repeat(WARMUP_ITERATIONS) { action() }
+            val start = System.nanoTime()
+            repeat(MEASURED_ITERATIONS) { action() }
+            return (System.nanoTime() - start) / MEASURED_ITERATIONS
+        }
+
+        internal fun accessorNames(schema: Schema): List<String> =
+            schema.fields.map { it.name().replaceFirstChar { c -> c.uppercaseChar() } }
+
+        /**
+         * The lookups the processor used to do: a full scan of the compilation unit per accessor.
+         */
+        internal fun lookupByRescanning(cu: CompilationUnit, schema: Schema): Int {
+            fun find(name: String, parameterCount: Int, topLevel: Boolean) = cu.findAll(MethodDeclaration::class.java)
+                .filter { it.nameAsString == name && it.parameters.size == parameterCount }
+                .filter { !it.findAncestor(TypeDeclaration::class.java).get().isNestedType == topLevel }
+
+            return accessorNames(schema).sumOf {
+                find("get$it", 0, true).size + find("set$it", 1, true).size +
+                        find("get$it", 0, false).size + find("set$it", 1, false).size + find("clear$it", 0, false).size
+            }
+        }
+
+        internal fun lookupWithIndex(cu: CompilationUnit, schema: Schema): Int {
+            val index = MethodIndex.of(cu)
+            return accessorNames(schema).sumOf {
+                index.topLevelMethods("get$it", 0).size + index.topLevelMethods("set$it", 1).size +
+                        index.builderMethods("get$it", 0).size + index.builderMethods("set$it", 1).size +
+                        index.builderMethods("clear$it", 0).size
+            }
+        }
+    }
+
+    @Test
+    fun `method index lookups compared with rescanning the compilation unit`(@TempDir outputDir: File) {
+        val schema = wideRecordSchema(FIELD_COUNT)
+        val cu = JavaParser().parse(generateSource(schema, outputDir)).result.get()
+
+        val rescanNanos = measureNanos { lookupByRescanning(cu, schema) }
+        val indexNanos = measureNanos { lookupWithIndex(cu, schema) }
+        println(
+            "Method lookups for $FIELD_COUNT fields: rescanning ${rescanNanos / 1_000_000.0} ms, " +
+                    "index ${indexNanos / 1_000_000.0} ms (${rescanNanos / indexNanos.coerceAtLeast(1)}x faster)"
+        )
+    }
+
+    @Test
+    fun `annotating with the schema registry compared with parsing the embedded schema`(@TempDir outputDir: File) {
+        val schema = wideRecordSchema(FIELD_COUNT)
+        val source = generateSource(schema, outputDir).readText()
+        File(outputDir, "WideRecord.avsc").writeText(schema.toString(true))
+        val schemas = SchemaRegistry.load(outputDir.toPath())
+
+        val embeddedNanos = measureNanos { AvroClassProcessor.annotateSource(source) }
+        val registryNanos = measureNanos { AvroClassProcessor.annotateSource(source, schemas) }
+        println(
+            "Annotating $FIELD_COUNT fields: embedded schema ${embeddedNanos / 1_000_000.0} ms, " +
+                    "schema registry ${registryNanos / 1_000_000.0} ms"
+        )
+    }
+
+    @Test
+    fun `annotating the compiled class compared with annotating the source`(@TempDir outputDir: File) {
+        val schema = wideRecordSchema(FIELD_COUNT)
+        val sourceFile = generateSource(schema, outputDir)
+        val source = sourceFile.readText()
+        val compiled = ToolProvider.getSystemJavaCompiler().run(
+            null, null, null, "-nowarn", "-cp", System.getProperty("java.class.path"), "-d", outputDir.path, sourceFile.path
+        )
+        assertEquals(0, compiled)
+        val classNames = listOf("WideRecord", "WideRecord\$Builder").map { "com/example/benchmark/$it" }
+        val classFiles = classNames.associateWith { File(outputDir, "$it.class").readBytes() }
+        val locator = ClassFileAnnotator.ClassFiles { Optional.ofNullable(classFiles[it]) }
+
+        val sourceNanos = measureNanos { AvroClassProcessor.annotateSource(source) }
+        val classFileNanos = measureNanos {
+            classFiles.values.forEach { ClassFileAnnotator.annotate(it, SchemaRegistry.empty(), locator).get() }
+        }
+        println(
+            "Annotating $FIELD_COUNT fields: source ${sourceNanos / 1_000_000.0} ms, " +
+                    "class files ${classFileNanos / 1_000_000.0} ms"
+        )
+    }
+}
@@ -0,0 +1,46 @@
+import com.github.javaparser.JavaParser
+import org.example.AvroClassProcessor
+import org.example.SchemaRegistry
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.io.File
+
+/**
+ * Checks that the faster ways of processing a wide record, which [WideRecordBenchmark] times, give the same results as
+ * the ways they replace.
+ */
+class WideRecordTest {
+
+    companion object {
+        // Wide enough for the compiler to split the SCHEMA$ literal into several string literals
+        private const val FIELD_COUNT = 160
+
+        // Rescanning is quadratic in the width, and finds the same methods at any width
+        private const val LOOKUP_FIELD_COUNT = 60
+    }
+
+    @Test
+    fun `method index finds the same methods as rescanning the compilation unit`(@TempDir outputDir: File) {
+        val schema = WideRecordBenchmark.wideRecordSchema(LOOKUP_FIELD_COUNT)
+        val cu = JavaParser().parse(WideRecordBenchmark.generateSource(schema, outputDir)).result.get()
+
+        val found = WideRecordBenchmark.lookupWithIndex(cu, schema)
+
+        assertEquals(WideRecordBenchmark.lookupByRescanning(cu, schema), found)
+        // Every field has a getter and a setter in the record and in the builder, and a clearer in the builder
+        assertTrue(found >= 5 * LOOKUP_FIELD_COUNT) { "Expected at least ${5 * LOOKUP_FIELD_COUNT} accessors, found $found" }
+    }
+
+    @Test
+    fun `annotating with the schema registry gives the same output as parsing the embedded schema`(@TempDir outputDir: File) {
+        val schema = WideRecordBenchmark.wideRecordSchema(FIELD_COUNT)
+        val source = WideRecordBenchmark.generateSource(schema, outputDir).readText()
+        File(outputDir, "WideRecord.avsc").writeText(schema.toString(true))
+        val schemas = SchemaRegistry.load(outputDir.toPath())
+
+        assertTrue(source.contains("SCHEMA$ = new org.apache.avro.Schema.Parser().parse(\"") && source.contains("\",\""))
+        assertEquals(AvroClassProcessor.annotateSource(source), AvroClassProcessor.annotateSource(source, schemas))
+    }
+}